@@ -10,6 +10,7 @@ import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 
 import java.nio.file.Path;
+import java.util.List;
 import java.util.concurrent.Callable;
 
 import static com.github.ronlievens.regov.task.config.Settings.properties;
@@ -31,6 +32,27 @@ class RewriteExecuteCommand extends AbstractRewriteCommonOptions implements Call
     @Option(names = {"-b", "--batch-file"}, description = "Batch file of repositories to run the recipe on", required = true)
     private Path batchFile;
 
+    @Option(names = {"--clone-free"}, description = "Rewrite the repositories over the azure devops rest api without a local git clone")
+    private boolean cloneFree;
+
+    @Option(names = {"--workers"}, description = "Number of repositories to rewrite in parallel (default 1)", defaultValue = "1")
+    private int workers;
+
+    @Option(names = {"--max-cycles"}, description = "Maximum number of recipe cycles per repository (default 3)", defaultValue = "3")
+    private int maxCycles;
+
+    @Option(names = {"--converge"}, description = "Run the later recipe cycles only for the recipes and files that changed in the previous cycle")
+    private boolean converge;
+
+    @Option(names = {"--campaign-file"}, description = "JSON file with the campaigns (ticket, recipe or recipeLocation, branch) to run on every repository from a single clone")
+    private Path campaignFile;
+
+    @Option(names = {"--max-file-size"}, description = "Files larger than this number of kilobytes are not parsed (default 1024)", defaultValue = "1024")
+    private long maxFileSize;
+
+    @Option(names = {"--generated-path"}, description = "Glob pattern of generated files that are not parsed, can be repeated")
+    private List<String> generatedPaths;
+
     public RewriteExecuteCommand() {
         task = new RewriteExecuteTask();
     }
@@ -53,6 +75,13 @@ class RewriteExecuteCommand extends AbstractRewriteCommonOptions implements Call
                 .recipe(recipe)
                 .recipeLocation(recipeLocation)
                 .batchFile(batchFile)
+                .cloneFree(cloneFree)
+                .workers(workers)
+                .maxCycles(maxCycles)
+                .converge(converge)
+                .campaignFile(campaignFile)
+                .maxFileSize(maxFileSize * 1024)
+                .generatedPaths(generatedPaths)
                 .build());
             return 0;
         } catch (ExitException aee) {
@@ -30,6 +30,15 @@ public class RewriteReportCommand extends AbstractRewriteCommonOptions implement
     @Option(names = {"--result-file"}, description = "Re-used result file of the previous report (" + DEFAULT_RESULT_FILE + ")")
     private Path resultFile;
 
+    @Option(names = {"--workers"}, description = "Number of parallel calls to azure devops (default 8)", defaultValue = "8")
+    private int workers;
+
+    @Option(names = {"--full-refresh"}, description = "Also report again on the repositories that are finished in the previous result")
+    private boolean fullRefresh;
+
+    @Option(names = {"--watch"}, description = "Keep polling azure devops and update the report when the state of a repository changes")
+    private boolean watch;
+
     public RewriteReportCommand() {
         task = new RewriteReportTask();
     }
@@ -59,6 +68,9 @@ public class RewriteReportCommand extends AbstractRewriteCommonOptions implement
             .azureOrganizationProjects(properties().getAzure().getOrganizations())
             .batchFile(batchFile)
             .resultFile(resultFile)
+            .workers(workers)
+            .fullRefresh(fullRefresh)
+            .watch(watch)
             .build());
         return 0;
     }
@@ -0,0 +1,72 @@
+package com.github.ronlievens.regov.shell;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import static com.github.ronlievens.regov.util.LogbackUtils.isTrace;
+
+// The http client of the direct calls to Azure DevOps (the calls that need the raw bytes or the response headers, which
+// az rest doesn't give). A single client and access token are shared by all the shells.
+@Slf4j
+public class AzureHttpClient {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final AzureHttpClient INSTANCE = new AzureHttpClient(new AzureRestShell(new Shell()));
+
+    private final AzureRestShell driver;
+    private final HttpClient httpClient;
+    private final Executor executor;
+    private volatile String accessToken;
+
+    private AzureHttpClient(@NonNull final AzureRestShell driver) {
+        this.driver = driver;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(TIMEOUT).followRedirects(HttpClient.Redirect.NORMAL).build();
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    public static AzureHttpClient getInstance() {
+        return INSTANCE;
+    }
+
+    // the executor of the parallel calls, the calls mostly wait on the network so every call has its own virtual thread
+    public Executor executor() {
+        return executor;
+    }
+
+    public <T> HttpResponse<T> get(@NonNull final String url, @NonNull final Map<String, String> headers, @NonNull final HttpResponse.BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+        log.trace("Calling: {}", url);
+        var response = httpClient.send(request(url, headers, false), bodyHandler);
+        if (response.statusCode() == 401 || response.statusCode() == 203) {
+            // the access token is expired (Azure DevOps answers with a 203 sign in page)
+            response = httpClient.send(request(url, headers, true), bodyHandler);
+        }
+        return response;
+    }
+
+    private HttpRequest request(@NonNull final String url, @NonNull final Map<String, String> headers, final boolean refreshToken) {
+        val request = HttpRequest.newBuilder(URI.create(url.replaceAll(" ", "%20")))
+            .timeout(TIMEOUT)
+            .header("Authorization", "Bearer %s".formatted(accessToken(refreshToken)))
+            .GET();
+        headers.forEach(request::header);
+        return request.build();
+    }
+
+    private synchronized String accessToken(final boolean refresh) {
+        if (accessToken == null || refresh) {
+            accessToken = driver.getAccessToken(isTrace());
+        }
+        return accessToken;
+    }
+}
@@ -0,0 +1,121 @@
+package com.github.ronlievens.regov.shell;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+import static com.github.ronlievens.regov.task.config.Settings.properties;
+
+// Downloads the files of a repository, the raw bytes are decoded as utf-8 so the line endings and the last newline of a
+// file are kept as they are.
+@Slf4j
+public class AzureItemShell {
+
+    private static final String URL_FORMAT = "%s/%s/%s/_apis/git/repositories/%s/items?path=%s&download=true&%s";
+    private static final int MAX_DOWNLOADS = 8;
+
+    private final AzureHttpClient httpClient;
+    private final Semaphore downloads;
+
+    public AzureItemShell() {
+        this.httpClient = AzureHttpClient.getInstance();
+        this.downloads = new Semaphore(MAX_DOWNLOADS);
+    }
+
+    // the content of a file, or null when the file doesn't exist or isn't utf-8
+    public String getFile(@NonNull final String organization, @NonNull final String project, @NonNull final UUID repository, @NonNull final String path) {
+        try {
+            return decode(path, download(URL_FORMAT.formatted(properties().getAzure().getUrlServer(), organization, project, repository,
+                URLEncoder.encode(path, StandardCharsets.UTF_8), properties().getAzure().getApiParameter())));
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to download %s: %s".formatted(path, e.getMessage()), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while downloading %s".formatted(path), e);
+        }
+    }
+
+    // the files are downloaded at the same time, a few at a time so the server doesn't throttle the client
+    public Map<String, String> getFiles(@NonNull final String organization, @NonNull final String project, @NonNull final UUID repository, @NonNull final Collection<String> paths) {
+        val pending = new LinkedHashMap<String, CompletableFuture<String>>();
+        for (val path : paths) {
+            pending.put(path, CompletableFuture.supplyAsync(() -> limited(() -> getFile(organization, project, repository, path)), httpClient.executor()));
+        }
+
+        val files = new LinkedHashMap<String, String>();
+        val failures = new ArrayList<String>();
+        pending.forEach((path, download) -> {
+            try {
+                val content = download.join();
+                if (content != null) {
+                    files.put(path, content);
+                }
+            } catch (RuntimeException e) {
+                failures.add(path);
+                log.warn("Unable to download {}: {}", path, e.getMessage());
+            }
+        });
+        if (!failures.isEmpty()) {
+            throw new RuntimeException("Unable to download %d files of repository %s".formatted(failures.size(), repository));
+        }
+        return files;
+    }
+
+    private String limited(@NonNull final Supplier<String> download) {
+        try {
+            downloads.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        try {
+            return download.get();
+        } finally {
+            downloads.release();
+        }
+    }
+
+    private byte[] download(@NonNull final String url) throws IOException, InterruptedException {
+        val response = httpClient.get(url, Map.of(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() == 404) {
+            return null;
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("Error calling %s: %s".formatted(url, response.statusCode()));
+        }
+        return response.body();
+    }
+
+    // a file that isn't valid utf-8 is skipped, pushing it back as text would corrupt it
+    private static String decode(@NonNull final String path, final byte[] content) {
+        if (content == null) {
+            return null;
+        }
+        try {
+            return StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                .decode(ByteBuffer.wrap(content))
+                .toString();
+        } catch (CharacterCodingException e) {
+            log.warn("Skip {}, the file isn't utf-8", path);
+            return null;
+        }
+    }
+}
@@ -1,44 +1,146 @@
 package com.github.ronlievens.regov.shell;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.github.ronlievens.regov.util.MapperUtils;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
+import org.apache.maven.artifact.versioning.ComparableVersion;
 
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static com.github.ronlievens.regov.task.config.Settings.properties;
-import static com.github.ronlievens.regov.util.LogbackUtils.isTrace;
+import static com.github.ronlievens.regov.util.CacheUtils.getCacheDirectory;
+import static com.github.ronlievens.regov.util.CacheUtils.sha256;
 
 @Slf4j
-@RequiredArgsConstructor
 public class AzureMavenVersionShell {
 
     private static final String URL_FORMAT = "%s/%s/%s/maven-metadata.xml";
     private static final XmlMapper MAPPER = MapperUtils.createXmlMapper();
+    private static final ObjectMapper JSON_MAPPER = MapperUtils.createJsonMapper(true, false);
+    private static final String CACHE_NAME = "maven-metadata";
+    private static final String CACHE_FILE = "%s.json";
 
-    private final AzureRestShell driver;
+    private final AzureHttpClient httpClient;
+    private final Path cacheDirectory;
 
     public AzureMavenVersionShell() {
-        this.driver = new AzureRestShell(new Shell());
+        this.httpClient = AzureHttpClient.getInstance();
+        this.cacheDirectory = getCacheDirectory(CACHE_NAME);
     }
 
+    public record CachedMetadata(
+        String etag,
+        String lastModified,
+        String body
+    ) {
+    }
+
+    // all the feeds are queried at the same time and the highest release over all the feeds is returned
     public String lookupLastVersion(@NonNull final String groupId, @NonNull final String artifactId) {
-        for (val azureOrganization : properties().getAzure().getOrganizations().keySet()) {
-            for (val url : properties().getAzure().getOrganizations().get(azureOrganization).getMavenRepositories()) {
-                try {
-                    val mavenXml = MAPPER.readValue(driver.call(URL_FORMAT.formatted(url, groupId.replaceAll("\\.", "/"), artifactId), isTrace()), HashMap.class);
-                    val versioning = (Map<String, String>) mavenXml.get("versioning");
-                    return versioning.get("latest");
-                } catch (JsonProcessingException e) {
-                    log.warn(e.getMessage(), e);
+        val lookups = new ArrayList<CompletableFuture<List<String>>>();
+        for (val organization : properties().getAzure().getOrganizations().values()) {
+            for (val url : organization.getMavenRepositories()) {
+                val metadataUrl = URL_FORMAT.formatted(url, groupId.replaceAll("\\.", "/"), artifactId);
+                lookups.add(CompletableFuture.supplyAsync(() -> lookupVersions(metadataUrl), httpClient.executor()));
+            }
+        }
+
+        ComparableVersion latest = null;
+        for (val lookup : lookups) {
+            for (val version : lookup.join()) {
+                val candidate = new ComparableVersion(version);
+                if (latest == null || candidate.compareTo(latest) > 0) {
+                    latest = candidate;
                 }
             }
         }
-        return null;
+        return latest != null ? latest.toString() : null;
+    }
+
+    private List<String> lookupVersions(@NonNull final String url) {
+        try {
+            val metadata = fetch(url);
+            return metadata != null ? versions(MAPPER.readValue(metadata, HashMap.class)) : List.of();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unable to read {}: {}", url, e.getMessage());
+            return List.of();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return List.of();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> versions(@NonNull final Map<String, Object> metadata) {
+        if (!(metadata.get("versioning") instanceof Map<?, ?> versioning)) {
+            return List.of();
+        }
+
+        val versions = new ArrayList<String>();
+        if (versioning.get("versions") instanceof Map<?, ?> versionList) {
+            val version = versionList.get("version");
+            if (version instanceof Collection<?> collection) {
+                collection.forEach(item -> versions.add(item.toString()));
+            } else if (version != null) {
+                versions.add(version.toString());
+            }
+        }
+        versions.removeIf(version -> version.endsWith("-SNAPSHOT"));
+
+        if (versions.isEmpty()) {
+            val fallback = versioning.get("release") != null ? versioning.get("release") : versioning.get("latest");
+            if (fallback != null) {
+                versions.add(fallback.toString());
+            }
+        }
+        return versions;
+    }
+
+    // the metadata is cached on disk and revalidated with the etag and last modified headers of the feed
+    private String fetch(@NonNull final String url) throws IOException, InterruptedException {
+        val cacheFile = cacheDirectory.resolve(CACHE_FILE.formatted(sha256(url)));
+        val cached = Files.exists(cacheFile) ? JSON_MAPPER.readValue(cacheFile.toFile(), CachedMetadata.class) : null;
+
+        val response = httpClient.get(url, conditionalHeaders(cached), HttpResponse.BodyHandlers.ofString());
+
+        if (response.statusCode() == 304 && cached != null) {
+            log.trace("Metadata not modified: {}", url);
+            return cached.body();
+        }
+        if (response.statusCode() == 404) {
+            return null;
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("Error calling %s: %s".formatted(url, response.statusCode()));
+        }
+
+        val metadata = new CachedMetadata(response.headers().firstValue("ETag").orElse(null), response.headers().firstValue("Last-Modified").orElse(null), response.body());
+        if (metadata.etag() != null || metadata.lastModified() != null) {
+            JSON_MAPPER.writeValue(cacheFile.toFile(), metadata);
+        }
+        return metadata.body();
+    }
+
+    private static Map<String, String> conditionalHeaders(final CachedMetadata cached) {
+        val headers = new HashMap<String, String>();
+        if (cached != null && cached.etag() != null) {
+            headers.put("If-None-Match", cached.etag());
+        }
+        if (cached != null && cached.lastModified() != null) {
+            headers.put("If-Modified-Since", cached.lastModified());
+        }
+        return headers;
     }
 }
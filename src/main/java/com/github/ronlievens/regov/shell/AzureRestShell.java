@@ -10,6 +10,13 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -21,6 +28,10 @@ import static com.github.ronlievens.regov.task.config.Settings.properties;
 public class AzureRestShell {
 
     private static final ObjectMapper mapper = MapperUtils.createJsonMapper();
+    private static final int PULL_REQUEST_PAGE_SIZE = 500;
+    private static final int BUILD_PAGE_SIZE = 1000;
+    private static final int BUILD_ID_BATCH_SIZE = 100;
+    private static final String CONTINUATION_TOKEN = "x-ms-continuationtoken";
 
     private final Shell shell;
 
@@ -34,6 +45,35 @@ public class AzureRestShell {
         return result.value();
     }
 
+    public String getAccessToken(final boolean trace) {
+        val result = shell.execute("az account get-access-token --resource \"%s\" --query accessToken --output tsv".formatted(properties().getAzure().getDevopsScope()), trace);
+        if (result.exitCode() != 0) {
+            throw new RuntimeException("Unable to get an access token for %s".formatted(properties().getAzure().getDevopsScope()));
+        }
+        return result.value().trim();
+    }
+
+    public String post(@NonNull final String url, @NonNull final String body, final boolean trace) {
+        val encodedUrl = url.replaceAll(" ", "%20");
+        log.trace("Posting: {}", encodedUrl);
+        try {
+            // the body can be large (file contents), so pass it as a file instead of a shell argument
+            val bodyFile = Files.createTempFile("regov-", ".json");
+            try {
+                Files.writeString(bodyFile, body);
+                val result = shell.execute("az rest --method post --uri \"%s\" --resource \"%s\" --headers \"Content-Type=application/json\" --body \"@%s\"".formatted(encodedUrl, properties().getAzure().getDevopsScope(), bodyFile.toAbsolutePath()), trace);
+                if (result.exitCode() != 0) {
+                    throw new RuntimeException("Error calling rest %s".formatted(encodedUrl));
+                }
+                return result.value();
+            } finally {
+                Files.deleteIfExists(bodyFile);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public AzureListWrapper<AzureProject> listProjects(@NonNull final String organization, final boolean trace) {
         try {
             return mapper.readValue(call("%s/%s/_apis/projects?%s".formatted(properties().getAzure().getUrlServer(), organization, properties().getAzure().getApiParameter()), trace), new TypeReference<>() {
@@ -61,6 +101,85 @@ public class AzureRestShell {
         }
     }
 
+    // all the pull requests of a project between the branches, paged because the server returns at most one page per call
+    public List<Map<String, Object>> listPullRequests(@NonNull final String organization,
+                                                      @NonNull final String project,
+                                                      @NonNull final String sourceBranch,
+                                                      @NonNull final String targetBranch,
+                                                      @NonNull final String status,
+                                                      final boolean trace) {
+        val pullRequests = new ArrayList<Map<String, Object>>();
+        var skip = 0;
+        while (true) {
+            // the $ of the paging parameters is encoded, so the shell doesn't expand it
+            val url = "%s/%s/%s/_apis/git/pullrequests?searchCriteria.sourceRefName=refs/heads/%s&searchCriteria.targetRefName=refs/heads/%s&searchCriteria.status=%s&%%24top=%d&%%24skip=%d&%s".formatted(
+                properties().getAzure().getUrlServer(), organization, project, sourceBranch, targetBranch, status, PULL_REQUEST_PAGE_SIZE, skip, properties().getAzure().getApiParameter());
+            final AzureListWrapper<Map<String, Object>> page;
+            try {
+                page = mapper.readValue(call(url, trace), new TypeReference<>() {
+                });
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException(e);
+            }
+            if (page.getValue() == null || page.getValue().isEmpty()) {
+                return pullRequests;
+            }
+            pullRequests.addAll(page.getValue());
+            if (page.getValue().size() < PULL_REQUEST_PAGE_SIZE) {
+                return pullRequests;
+            }
+            skip += PULL_REQUEST_PAGE_SIZE;
+        }
+    }
+
+    public List<Map<String, Object>> listBuilds(@NonNull final String organization, @NonNull final UUID project, @NonNull final String branchName, @NonNull final String minTime, final boolean trace) {
+        return listBuilds(organization, project, "branchName=%s&minTime=%s".formatted(branchName, minTime), trace);
+    }
+
+    // the ids are asked in batches, so the url stays short
+    public List<Map<String, Object>> listBuilds(@NonNull final String organization, @NonNull final UUID project, @NonNull final List<Integer> buildIds, final boolean trace) {
+        val builds = new ArrayList<Map<String, Object>>();
+        for (var start = 0; start < buildIds.size(); start += BUILD_ID_BATCH_SIZE) {
+            val batch = buildIds.subList(start, Math.min(buildIds.size(), start + BUILD_ID_BATCH_SIZE));
+            builds.addAll(listBuilds(organization, project, "buildIds=%s".formatted(String.join(",", batch.stream().map(String::valueOf).toList())), trace));
+        }
+        return builds;
+    }
+
+    // all the pages of the builds, the next page is only given as a continuation token in the response headers (which az
+    // rest doesn't return), so the builds are listed with the Azure http client
+    private List<Map<String, Object>> listBuilds(@NonNull final String organization, @NonNull final UUID project, @NonNull final String filter, final boolean trace) {
+        val builds = new ArrayList<Map<String, Object>>();
+        String continuationToken = null;
+        do {
+            val url = "%s/%s/%s/_apis/build/builds?%s&queryOrder=queueTimeDescending&%%24top=%d%s&%s".formatted(
+                properties().getAzure().getUrlServer(), organization, project, filter, BUILD_PAGE_SIZE,
+                continuationToken != null ? "&continuationToken=" + URLEncoder.encode(continuationToken, StandardCharsets.UTF_8) : "",
+                properties().getAzure().getApiParameter());
+            if (trace) {
+                log.info("Calling: {}", url);
+            }
+            try {
+                val response = AzureHttpClient.getInstance().get(url, Map.of(), HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() != 200) {
+                    throw new RuntimeException("Error calling rest %s: %s".formatted(url, response.statusCode()));
+                }
+                final AzureListWrapper<Map<String, Object>> page = mapper.readValue(response.body(), new TypeReference<>() {
+                });
+                if (page.getValue() != null) {
+                    builds.addAll(page.getValue());
+                }
+                continuationToken = response.headers().firstValue(CONTINUATION_TOKEN).filter(token -> !token.isBlank()).orElse(null);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        } while (continuationToken != null);
+        return builds;
+    }
+
     public String getRepositoryFile(@NonNull final String organization, @NonNull final String project, @NonNull final UUID repository, @NonNull final String file, final boolean trace) {
         return call("%s/%s/%s/_apis/git/repositories/%s/items?scopePath=%s&download=true&%s".formatted(properties().getAzure().getUrlServer(), organization, project, repository, file, properties().getAzure().getApiParameter()), trace);
     }
@@ -91,4 +210,40 @@ public class AzureRestShell {
             throw new RuntimeException(e);
         }
     }
+
+    public AzureRefs getRepositoryBranch(@NonNull final String organization, @NonNull final String project, @NonNull final UUID repository, @NonNull final String branch, final boolean trace) {
+        try {
+            val refs = mapper.readValue(call("%s/%s/%s/_apis/git/repositories/%s/refs?filter=heads/%s&%s".formatted(properties().getAzure().getUrlServer(), organization, project, repository, branch, properties().getAzure().getApiParameter()), trace), new TypeReference<AzureListWrapper<AzureRefs>>() {
+            });
+            if (refs.getValue() != null) {
+                for (val ref : refs.getValue()) {
+                    // the filter is a prefix filter, so only accept the exact branch
+                    if ("refs/heads/%s".formatted(branch).equals(ref.getName())) {
+                        return ref;
+                    }
+                }
+            }
+            return null;
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public Map pushChanges(@NonNull final String organization,
+                           @NonNull final String project,
+                           @NonNull final UUID repository,
+                           @NonNull final String branch,
+                           @NonNull final String oldObjectId,
+                           @NonNull final String comment,
+                           @NonNull final List<Map<String, Object>> changes,
+                           final boolean trace) {
+        try {
+            val push = Map.of(
+                "refUpdates", List.of(Map.of("name", "refs/heads/%s".formatted(branch), "oldObjectId", oldObjectId)),
+                "commits", List.of(Map.of("comment", comment, "changes", changes)));
+            return mapper.readValue(post("%s/%s/%s/_apis/git/repositories/%s/pushes?%s".formatted(properties().getAzure().getUrlServer(), organization, project, repository, properties().getAzure().getApiParameter()), mapper.writeValueAsString(push), trace), Map.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
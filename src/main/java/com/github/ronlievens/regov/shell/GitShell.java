@@ -23,12 +23,36 @@ public class GitShell {
         return null;
     }
 
+    public String getHeadCommit(@NonNull final Path path, final boolean trace) {
+        return getCommit("HEAD", path, trace);
+    }
+
+    public String getCommit(@NonNull final String reference, @NonNull final Path path, final boolean trace) {
+        val result = shell.execute("git rev-parse %s".formatted(reference), path, trace);
+        if (result.exitCode() == 0) {
+            return result.value().trim();
+        }
+        return null;
+    }
+
     public boolean cloneTo(@NonNull final String url, @NonNull final Path target, final boolean trace) {
         return shell.execute("git clone %s %s".formatted(url, target.toAbsolutePath()), trace).exitCode() == 0;
     }
 
-    public void checkoutFeatureBranchLocal(@NonNull final String branchName, @NonNull final Path path, final boolean trace) {
-        shell.execute("git checkout -B %s".formatted(branchName), path, trace);
+    public boolean checkoutBranch(@NonNull final String branchName, @NonNull final Path path, final boolean trace) {
+        return shell.execute("git checkout %s".formatted(branchName), path, trace).exitCode() == 0;
+    }
+
+    public boolean checkoutFeatureBranchLocal(@NonNull final String branchName, @NonNull final Path path, final boolean trace) {
+        return shell.execute("git checkout -B %s".formatted(branchName), path, trace).exitCode() == 0;
+    }
+
+    public boolean resetHard(@NonNull final String reference, @NonNull final Path path, final boolean trace) {
+        return shell.execute("git reset -q --hard %s".formatted(reference), path, trace).exitCode() == 0;
+    }
+
+    public boolean clean(@NonNull final Path path, final boolean trace) {
+        return shell.execute("git clean -q -fd", path, trace).exitCode() == 0;
     }
 
     public void pullRemoteBranch(String brancheName, @NonNull final Path path, final boolean trace) {
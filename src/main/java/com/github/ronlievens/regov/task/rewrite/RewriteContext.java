@@ -11,6 +11,7 @@ import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
 import java.util.UUID;
@@ -18,7 +19,7 @@ import java.util.UUID;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 @Slf4j
-@Builder
+@Builder(toBuilder = true)
 @AllArgsConstructor
 @Data
 @ToString
@@ -44,9 +45,19 @@ public class RewriteContext {
     private final Path batchFile;
     private final String recipe;
     private final String recipeLocation;
+    private final boolean cloneFree;
+    private final int workers;
+    private final int maxCycles;
+    private final boolean converge;
+    private final Path campaignFile;
+    private final long maxFileSize;
+    private final List<String> generatedPaths;
+    private final String branch;
 
     // Report
     private final Path resultFile;
+    private final boolean fullRefresh;
+    private final boolean watch;
 
     // work data
     private TreeSet<AzureRepository> repositories;
@@ -61,6 +72,9 @@ public class RewriteContext {
 
     @JsonIgnore
     public String getBranchName() {
+        if (isNotBlank(branch)) {
+            return branch.trim();
+        }
         return SOURCE_FEATURE_BRANCH.formatted(ticket);
     }
 }
@@ -0,0 +1,151 @@
+package com.github.ronlievens.regov.task.rewrite.execute;
+
+import com.github.ronlievens.regov.shell.AzureItemShell;
+import com.github.ronlievens.regov.shell.AzureRestShell;
+import com.github.ronlievens.regov.shell.model.AzureRepository;
+import com.github.ronlievens.regov.task.rewrite.RewriteContext;
+import com.github.ronlievens.regov.task.rewrite.utils.RewriteUtils;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.openrewrite.Recipe;
+import org.openrewrite.Result;
+import org.openrewrite.binary.Binary;
+import org.openrewrite.quark.Quark;
+import org.openrewrite.remote.Remote;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.ronlievens.regov.task.config.Settings.properties;
+import static com.github.ronlievens.regov.task.rewrite.utils.RewriteUtils.LOCATION_POM;
+import static com.github.ronlievens.regov.task.rewrite.utils.RewriteUtils.rewriteInMemory;
+import static com.github.ronlievens.regov.util.PathUtils.pathEndsWith;
+
+@Slf4j
+public class CloneFreeRewrite {
+
+    private static final List<String> SOURCE_EXTENSIONS = List.of(".java", ".xjb", ".xml");
+
+    private final AzureRestShell azureRestShell;
+    private final AzureItemShell azureItemShell;
+
+    public CloneFreeRewrite(@NonNull final AzureRestShell azureRestShell) {
+        this.azureRestShell = azureRestShell;
+        this.azureItemShell = new AzureItemShell();
+    }
+
+    // read the sources over rest and commit the changes with a single push, no local clone is needed
+
+    public boolean rewrite(@NonNull final RewriteContext rewriteContext,
+                           @NonNull final AzureRepository repository,
+                           @NonNull final Recipe recipe,
+                           final boolean pomRecipe,
+                           @NonNull final String message) {
+        val organization = repository.getProject().getOrganizationName();
+        val project = repository.getProject().getName();
+        val mainBranch = properties().getGit().getGitBranchMain();
+
+        if (azureRestShell.getRepositoryBranch(organization, project, repository.getId(), rewriteContext.getBranchName(), rewriteContext.isTrace()) != null) {
+            log.warn("Branch {} already exists in {}, run without --clone-free to update an existing branch", rewriteContext.getBranchName(), repository.getName());
+            return false;
+        }
+
+        val main = azureRestShell.getRepositoryBranch(organization, project, repository.getId(), mainBranch, rewriteContext.isTrace());
+        if (main == null) {
+            log.warn("Unable to find branch {} in {}", mainBranch, repository.getName());
+            return false;
+        }
+
+        val changes = pomRecipe ? rewritePom(rewriteContext, repository, recipe) : rewriteSources(rewriteContext, repository, recipe);
+        if (changes.isEmpty()) {
+            log.info("No changes detected for {} with recipe {}", repository.getName(), rewriteContext.getRecipeName());
+            return false;
+        }
+
+        if (rewriteContext.isSkipRemote()) {
+            log.info("--skip-remote is enabled, so {} changes NOT pushed to remote repository {}", changes.size(), repository.getName());
+            changes.forEach(change -> log.info("- {} {}", change.get("changeType"), ((Map<?, ?>) change.get("item")).get("path")));
+            return false;
+        }
+
+        azureRestShell.pushChanges(organization,
+            project,
+            repository.getId(),
+            rewriteContext.getBranchName(),
+            main.getObjectId(),
+            "%s - generated by ReGov".formatted(message),
+            changes,
+            rewriteContext.isTrace());
+        log.info("Pushed {} changes to branch {} of {}", changes.size(), rewriteContext.getBranchName(), repository.getName());
+        return true;
+    }
+
+    private List<Map<String, Object>> rewritePom(@NonNull final RewriteContext rewriteContext, @NonNull final AzureRepository repository, @NonNull final Recipe recipe) {
+        val pom = azureItemShell.getFile(repository.getProject().getOrganizationName(), repository.getProject().getName(), repository.getId(), "/" + LOCATION_POM);
+        val changes = new ArrayList<Map<String, Object>>();
+        if (pom == null) {
+            log.warn("Unable to read {} of {}", LOCATION_POM, repository.getName());
+            return changes;
+        }
+        RewriteUtils.rewritePom(Path.of(LOCATION_POM), pom, recipe).ifPresent(content -> changes.add(change("edit", Path.of(LOCATION_POM), content)));
+        return changes;
+    }
+
+    private List<Map<String, Object>> rewriteSources(@NonNull final RewriteContext rewriteContext, @NonNull final AzureRepository repository, @NonNull final Recipe recipe) {
+        val changes = new ArrayList<Map<String, Object>>();
+        for (val result : rewriteInMemory(readSources(rewriteContext, repository), recipe)) {
+            addChanges(changes, result);
+        }
+        return changes;
+    }
+
+    // the sources are downloaded as raw utf-8 bytes, so an edit doesn't change the line endings of the whole file
+    private Map<Path, String> readSources(@NonNull final RewriteContext rewriteContext, @NonNull final AzureRepository repository) {
+        val organization = repository.getProject().getOrganizationName();
+        val project = repository.getProject().getName();
+
+        val items = azureRestShell.listItems(organization, project, repository.getId(), rewriteContext.isTrace());
+        val paths = new ArrayList<String>();
+        for (val item : items.getValue()) {
+            if (!Boolean.TRUE.equals(item.getIsFolder()) && pathEndsWith(Path.of(item.getPath()), SOURCE_EXTENSIONS)) {
+                paths.add(item.getPath());
+            }
+        }
+
+        val sources = new HashMap<Path, String>();
+        azureItemShell.getFiles(organization, project, repository.getId(), paths).forEach((path, content) -> sources.put(Path.of(path.substring(1)), content));
+        log.info("Read {} source files of {}", sources.size(), repository.getName());
+        return sources;
+    }
+
+    private static void addChanges(@NonNull final List<Map<String, Object>> changes, @NonNull final Result result) {
+        val before = result.getBefore();
+        val after = result.getAfter();
+        if (after == null) {
+            changes.add(change("delete", before.getSourcePath(), null));
+        } else if (after instanceof Quark || after instanceof Binary || after instanceof Remote) {
+            log.warn("Unable to push non text file {}", after.getSourcePath());
+        } else if (before == null) {
+            changes.add(change("add", after.getSourcePath(), after.printAll()));
+        } else if (!before.getSourcePath().equals(after.getSourcePath())) {
+            changes.add(change("delete", before.getSourcePath(), null));
+            changes.add(change("add", after.getSourcePath(), after.printAll()));
+        } else {
+            changes.add(change("edit", after.getSourcePath(), after.printAll()));
+        }
+    }
+
+    private static Map<String, Object> change(@NonNull final String changeType, @NonNull final Path sourcePath, final String content) {
+        val change = new HashMap<String, Object>();
+        change.put("changeType", changeType);
+        change.put("item", Map.of("path", "/" + sourcePath.toString().replace('\\', '/')));
+        if (content != null) {
+            change.put("newContent", Map.of("content", content, "contentType", "rawtext"));
+        }
+        return change;
+    }
+}
@@ -1,6 +1,9 @@
 package com.github.ronlievens.regov.task.rewrite.execute;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.ronlievens.regov.exceptions.ExitException;
+import com.github.ronlievens.regov.shell.AzureRestShell;
 import com.github.ronlievens.regov.shell.AzureShell;
 import com.github.ronlievens.regov.shell.GitShell;
 import com.github.ronlievens.regov.shell.Shell;
@@ -8,8 +11,15 @@ import com.github.ronlievens.regov.shell.model.AzureRepository;
 import com.github.ronlievens.regov.task.config.Settings;
 import com.github.ronlievens.regov.task.rewrite.RewriteContext;
 import com.github.ronlievens.regov.task.rewrite.RewriteRunnableTask;
+import com.github.ronlievens.regov.task.rewrite.model.CampaignModel;
+import com.github.ronlievens.regov.task.rewrite.model.RewriteProfileModel;
+import com.github.ronlievens.regov.task.rewrite.recipes.MavenVersionCache;
+import com.github.ronlievens.regov.task.rewrite.recipes.RecipeDependencyService;
+import com.github.ronlievens.regov.task.rewrite.utils.CyclePolicy;
 import com.github.ronlievens.regov.task.rewrite.utils.RewriteUtils;
+import com.github.ronlievens.regov.task.rewrite.utils.SourceSelection;
 import com.github.ronlievens.regov.util.LogbackUtils;
+import com.github.ronlievens.regov.util.MapperUtils;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,11 +29,26 @@ import org.openrewrite.Recipe;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.github.ronlievens.regov.task.config.Settings.properties;
 import static com.github.ronlievens.regov.task.rewrite.RewriteContext.SOURCE_COMMIT_PREFIX;
 import static com.github.ronlievens.regov.task.rewrite.utils.CsvUtils.loadSearchResultFromCsv;
+import static com.github.ronlievens.regov.task.rewrite.utils.RewriteProfileUtils.logProfiles;
+import static com.github.ronlievens.regov.task.rewrite.utils.RewriteProfileUtils.writeProfiles;
+import static com.github.ronlievens.regov.task.rewrite.utils.RewriteUtils.LOCATION_POM;
+import static com.github.ronlievens.regov.task.rewrite.utils.RewriteUtils.hasPomChanges;
+import static com.github.ronlievens.regov.task.rewrite.utils.RewriteUtils.isPomRecipe;
 import static com.github.ronlievens.regov.task.rewrite.utils.RewriteUtils.loadRecipe;
 import static com.github.ronlievens.regov.util.PathUtils.createDirectory;
 import static com.github.ronlievens.regov.util.PathUtils.deleteFolderWhenItExists;
@@ -34,13 +59,19 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
 @RequiredArgsConstructor
 public class RewriteExecuteTask implements RewriteRunnableTask {
 
+    private static final ObjectMapper MAPPER = MapperUtils.createJsonMapper(true, false);
+
     private final GitShell gitShell;
     private final AzureShell azureShell;
+    private final AzureRestShell azureRestShell;
+    private final CloneFreeRewrite cloneFreeRewrite;
 
     public RewriteExecuteTask() {
         val shell = new Shell();
         gitShell = new GitShell(shell);
         azureShell = new AzureShell(shell);
+        azureRestShell = new AzureRestShell(shell);
+        cloneFreeRewrite = new CloneFreeRewrite(azureRestShell);
     }
 
     @Override
@@ -90,54 +121,232 @@ public class RewriteExecuteTask implements RewriteRunnableTask {
             throw new ExitException();
         }
 
-        if (isNotBlank(rewriteContext.getRecipe()) || isNotBlank(rewriteContext.getRecipeLocation())) {
-            val recipe = loadRecipe(rewriteContext.getRecipeLocation(), rewriteContext.getRecipe());
+        val campaigns = loadCampaigns(rewriteContext);
+        if (!campaigns.isEmpty() && rewriteContext.getRepositories() != null) {
+            executeRecipes(rewriteContext, campaigns);
+        }
+    }
+
+    // a campaign is a ticket with its own recipe and branch, without a campaign file the options form a single campaign
+    private record Campaign(
+        RewriteContext context,
+        Recipe recipe,
+        boolean prefilter
+    ) {
+    }
+
+    private List<Campaign> loadCampaigns(@NonNull final RewriteContext rewriteContext) throws ExitException {
+        val contexts = new ArrayList<RewriteContext>();
+        if (rewriteContext.getCampaignFile() != null) {
+            try {
+                for (val campaign : MAPPER.readValue(rewriteContext.getCampaignFile().toFile(), new TypeReference<List<CampaignModel>>() {
+                })) {
+                    if (isBlank(campaign.getTicket())) {
+                        log.error("Campaign without ticket in {}", rewriteContext.getCampaignFile().toAbsolutePath());
+                        throw new ExitException();
+                    }
+                    contexts.add(rewriteContext.toBuilder()
+                        .ticket(campaign.getTicket().trim().toUpperCase())
+                        .recipe(campaign.getRecipe())
+                        .recipeLocation(campaign.getRecipeLocation())
+                        .branch(campaign.getBranch())
+                        .build());
+                }
+            } catch (IOException e) {
+                log.error("Unable to read campaign file '{}': {}", rewriteContext.getCampaignFile().toAbsolutePath(), e.getMessage());
+                throw new ExitException();
+            }
+        } else if (isNotBlank(rewriteContext.getRecipe()) || isNotBlank(rewriteContext.getRecipeLocation())) {
+            contexts.add(rewriteContext);
+        }
+
+        val campaigns = new ArrayList<Campaign>();
+        for (val context : contexts) {
+            if (isBlank(context.getRecipe()) && isBlank(context.getRecipeLocation())) {
+                log.error("No recipe for campaign {}", context.getTicket());
+                throw new ExitException();
+            }
+
+            val recipe = loadRecipe(context.getRecipeLocation(), context.getRecipe());
             if (recipe.getRecipeList().isEmpty()) {
                 log.error("No recipes found!");
                 throw new ExitException();
             }
 
-            if (rewriteContext.getRepositories() != null) {
-                var count = 1;
-                for (val repository : rewriteContext.getRepositories()) {
-                    log.info("Run recipe for repository {} [{}/{}] ", repository.getName(), count, rewriteContext.getRepositories().size());
-                    executeRecipe(rewriteContext, repository, recipe);
-                    count++;
-                }
+            prefetchVersions(recipe);
+
+            val prefilter = isPomRecipe(recipe);
+            if (prefilter) {
+                log.info("Recipe {} only changes the {}, prefilter repositories before cloning", context.getRecipeName(), LOCATION_POM);
             }
+            campaigns.add(new Campaign(context, recipe, prefilter));
+        }
+        return campaigns;
+    }
+
+    private void executeRecipes(@NonNull final RewriteContext rewriteContext, @NonNull final List<Campaign> campaigns) throws ExitException {
+        val workers = Math.max(1, rewriteContext.getWorkers());
+        val planner = new RewriteExecutionPlanner();
+        val plan = planner.plan(rewriteContext.getRepositories(), workers);
+
+        val dependencyService = RecipeDependencyService.getInstance();
+        val executor = Executors.newFixedThreadPool(workers);
+        val count = new AtomicInteger();
+        val profiles = new ConcurrentLinkedQueue<RewriteProfileModel>();
+        try {
+            val futures = new ArrayList<Future<?>>();
+            for (val repository : plan) {
+                futures.add(executor.submit(() -> {
+                    log.info("Run recipe for repository {} [{}/{}] ", repository.getName(), count.incrementAndGet(), plan.size());
+                    val start = System.nanoTime();
+                    if (executeRecipe(rewriteContext, repository, campaigns, profiles)) {
+                        planner.record(repository, Duration.ofNanos(System.nanoTime() - start));
+                    }
+                    return null;
+                }));
+            }
+            for (val future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            executor.shutdownNow();
+            if (e.getCause() instanceof ExitException exitException) {
+                throw exitException;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExitException();
+        } finally {
+            executor.shutdown();
+            planner.save();
+            dependencyService.clearRunScope();
+
+            val sortedProfiles = new ArrayList<>(profiles);
+            sortedProfiles.sort(Comparator.comparingLong((RewriteProfileModel profile) -> profile.getParseMillis() + profile.getRunMillis() + profile.getWriteMillis()).reversed());
+            logProfiles(sortedProfiles);
+            writeProfiles(rewriteContext.getDestination(), sortedProfiles);
         }
     }
 
-    private void executeRecipe(@NonNull final RewriteContext rewriteContext, @NonNull final AzureRepository repository, @NonNull final Recipe recipe) throws ExitException {
+    // returns true when the repository is cloned, only these runs are used to estimate the next plan
+    private boolean executeRecipe(@NonNull final RewriteContext rewriteContext, @NonNull final AzureRepository repository, @NonNull final List<Campaign> campaigns, @NonNull final Collection<RewriteProfileModel> profiles) throws ExitException {
+        if (rewriteContext.isCloneFree()) {
+            for (val campaign : campaigns) {
+                val message = "Update project with rewrite recipe %s".formatted(campaign.context().getRecipeName());
+                if (cloneFreeRewrite.rewrite(campaign.context(), repository, campaign.recipe(), campaign.prefilter(), message)) {
+                    createPullRequest(campaign.context(), repository, message);
+                }
+            }
+            return false;
+        }
+
         var destinationGit = rewriteContext.getDestination();
+        var pending = campaigns;
         if (repository.getSshUrl() != null) {
+            pending = campaigns.stream()
+                .filter(campaign -> !campaign.prefilter() || hasRemotePomChanges(campaign.context(), repository, campaign.recipe()))
+                .toList();
+            if (pending.isEmpty()) {
+                log.info("No changes detected in remote {} for {}, skip cloning", LOCATION_POM, repository.getSshUrl());
+                return false;
+            }
+
             destinationGit = rewriteContext.getDestination().resolve(repository.getId().toString());
             createDirectory(destinationGit);
             log.info("Cloning {} to:{}", repository.getSshUrl(), destinationGit);
-            gitShell.cloneTo(repository.getSshUrl(), destinationGit, rewriteContext.isTrace());
-            log.info("Create feature branch {}", rewriteContext.getBranchName());
-            gitShell.checkoutFeatureBranchLocal(rewriteContext.getBranchName(), destinationGit, rewriteContext.isTrace());
-            gitShell.pullRemoteBranch(rewriteContext.getBranchName(), destinationGit, rewriteContext.isTrace());
-        } else {
-            val currentBranch = gitShell.getCurrentBranchInLocalRepository(rewriteContext.getDestination(), rewriteContext.isTrace());
-            if (!rewriteContext.getBranchName().equals(currentBranch)) {
-                log.info("Create feature branch {}", rewriteContext.getBranchName());
-                gitShell.checkoutFeatureBranchLocal(rewriteContext.getBranchName(), rewriteContext.getDestination(), rewriteContext.isTrace());
+            if (!gitShell.cloneTo(repository.getSshUrl(), destinationGit, rewriteContext.isTrace())) {
+                log.error("Unable to clone {}, skip repository {}", repository.getSshUrl(), repository.getName());
+                return false;
+            }
+        }
+
+        val mainCommit = gitShell.getCommit(properties().getGit().getGitBranchMain(), destinationGit, rewriteContext.isTrace());
+        var first = true;
+        try {
+            for (val campaign : pending) {
+                val context = campaign.context();
+                if (repository.getSshUrl() != null || !first) {
+                    // every campaign branches from the main commit on a clean tree, so a branch never contains the
+                    // (uncommitted or unpushed) changes of another campaign
+                    if (!checkoutCampaignBranch(context, destinationGit, mainCommit)) {
+                        log.error("Unable to reset {} to {} for branch {}, skip the remaining campaigns of repository {}",
+                            destinationGit, properties().getGit().getGitBranchMain(), context.getBranchName(), repository.getName());
+                        break;
+                    }
+                    if (repository.getSshUrl() != null) {
+                        gitShell.pullRemoteBranch(context.getBranchName(), destinationGit, context.isTrace());
+                    }
+                } else {
+                    // the first campaign on a local repository keeps its working tree
+                    val currentBranch = gitShell.getCurrentBranchInLocalRepository(destinationGit, context.isTrace());
+                    if (!context.getBranchName().equals(currentBranch)) {
+                        log.info("Create feature branch {}", context.getBranchName());
+                        if (!gitShell.checkoutFeatureBranchLocal(context.getBranchName(), destinationGit, context.isTrace())) {
+                            log.error("Unable to create branch {}, skip repository {}", context.getBranchName(), repository.getName());
+                            break;
+                        }
+                    }
+                }
+                first = false;
+
+                val profile = RewriteProfileModel.builder()
+                    .repository(campaigns.size() > 1 ? "%s [%s]".formatted(repository.getName(), context.getTicket()) : repository.getName())
+                    .build();
+                // only a fresh clone is guaranteed to match its commit, a local repository can contain uncommitted changes.
+                // The campaigns start from the same commit, so the sources are parsed once and reused from the cache
+                val commitId = repository.getSshUrl() != null ? gitShell.getHeadCommit(destinationGit, context.isTrace()) : null;
+                val cyclePolicy = new CyclePolicy(Math.max(1, context.getMaxCycles()), context.isConverge());
+                val sourceSelection = SourceSelection.of(context.getMaxFileSize(), context.getGeneratedPaths());
+                if (runRecipe(campaign.recipe(), destinationGit, profile, cyclePolicy, sourceSelection, commitId)) {
+                    processRemote(context, repository, destinationGit);
+                } else {
+                    log.info("No changes detected for {} with recipe {}", repository.getSshUrl(), context.getRecipeName());
+                }
+                profiles.add(profile);
             }
+        } finally {
+            RewriteUtils.releaseParsedSources(destinationGit);
         }
+        return true;
+    }
 
-        if (runRecipe(recipe, destinationGit)) {
-            processRemote(rewriteContext, repository, destinationGit);
-            return;
+    private boolean checkoutCampaignBranch(@NonNull final RewriteContext context, @NonNull final Path destinationGit, final String mainCommit) {
+        val trace = context.isTrace();
+        if (mainCommit == null
+            || !gitShell.resetHard("HEAD", destinationGit, trace)
+            || !gitShell.clean(destinationGit, trace)
+            || !gitShell.checkoutBranch(properties().getGit().getGitBranchMain(), destinationGit, trace)
+            || !gitShell.resetHard(mainCommit, destinationGit, trace)) {
+            return false;
         }
+        log.info("Create feature branch {}", context.getBranchName());
+        return gitShell.checkoutFeatureBranchLocal(context.getBranchName(), destinationGit, trace);
+    }
 
-        log.info("No changes detected for {} with recipe {}", repository.getSshUrl(), rewriteContext.getRecipeName());
+    private static void prefetchVersions(@NonNull final Recipe recipe) {
+        RecipeDependencyService.getInstance().getDependency(MavenVersionCache.class).prefetch(recipe);
     }
 
-    private static boolean runRecipe(final Recipe recipe, final Path projectFile) throws ExitException {
+    private boolean hasRemotePomChanges(@NonNull final RewriteContext rewriteContext, @NonNull final AzureRepository repository, @NonNull final Recipe recipe) {
+        try {
+            val pom = azureRestShell.getRepositoryFile(repository.getProject().getOrganizationName(),
+                repository.getProject().getName(),
+                repository.getId(),
+                "/" + LOCATION_POM,
+                rewriteContext.isTrace());
+            return hasPomChanges(pom, recipe);
+        } catch (RuntimeException e) {
+            // when the prefilter is not conclusive fallback on the clone
+            log.warn("Unable to prefilter {} of repository {}: {}", LOCATION_POM, repository.getName(), e.getMessage());
+            return true;
+        }
+    }
+
+    private static boolean runRecipe(final Recipe recipe, final Path projectFile, final RewriteProfileModel profile, final CyclePolicy cyclePolicy, final SourceSelection sourceSelection, final String commitId) throws ExitException {
         try {
             log.info("Running recipe {} on path [{}]", recipe, projectFile);
-            return RewriteUtils.rewrite(projectFile, recipe);
+            return RewriteUtils.rewrite(projectFile, recipe, profile, cyclePolicy, sourceSelection, commitId);
         } catch (IOException e) {
             log.error("IOException: {}", e.getMessage(), e);
             throw new ExitException();
@@ -157,33 +366,37 @@ public class RewriteExecuteTask implements RewriteRunnableTask {
             gitShell.push(destinationGit, rewriteContext.isTrace());
             log.info("Commit pushed to remote repository: {}", destinationGit);
 
-            val mergeCommitMessage = SOURCE_COMMIT_PREFIX.formatted(rewriteContext.getTicket());
-            if (Settings.properties().isAutoApproveEnabled()) {
-                azureShell.createPullRequestAndApprove("%s/%s".formatted(properties().getAzure().getUrlServer(), repository.getProject().getOrganizationName()),
-                    repository.getProject().getName(),
-                    repository.getName(),
-                    rewriteContext.getBranchName(),
-                    "Auto rewrite %s".formatted(rewriteContext.getRecipeName()),
-                    message,
-                    properties().getGit().getGitBranchMain(),
-                    mergeCommitMessage,
-                    rewriteContext.isTrace());
-                log.info("Pull request created and approved: {}", mergeCommitMessage);
-            } else {
-                azureShell.createPullRequest("%s/%s".formatted(properties().getAzure().getUrlServer(), repository.getProject().getOrganizationName()),
-                    repository.getProject().getName(),
-                    repository.getName(),
-                    rewriteContext.getBranchName(),
-                    "Auto rewrite %s".formatted(rewriteContext.getRecipeName()),
-                    message,
-                    properties().getGit().getGitBranchMain(),
-                    mergeCommitMessage,
-                    false,
-                    rewriteContext.isTrace());
-                log.info("Pull request created: {}", mergeCommitMessage);
-            }
+            createPullRequest(rewriteContext, repository, message);
         } else {
             log.info("--skip-remote is enabled, so commit NOT pushed to remote repository");
         }
     }
+
+    private void createPullRequest(final RewriteContext rewriteContext, final AzureRepository repository, final String message) {
+        val mergeCommitMessage = SOURCE_COMMIT_PREFIX.formatted(rewriteContext.getTicket());
+        if (Settings.properties().isAutoApproveEnabled()) {
+            azureShell.createPullRequestAndApprove("%s/%s".formatted(properties().getAzure().getUrlServer(), repository.getProject().getOrganizationName()),
+                repository.getProject().getName(),
+                repository.getName(),
+                rewriteContext.getBranchName(),
+                "Auto rewrite %s".formatted(rewriteContext.getRecipeName()),
+                message,
+                properties().getGit().getGitBranchMain(),
+                mergeCommitMessage,
+                rewriteContext.isTrace());
+            log.info("Pull request created and approved: {}", mergeCommitMessage);
+        } else {
+            azureShell.createPullRequest("%s/%s".formatted(properties().getAzure().getUrlServer(), repository.getProject().getOrganizationName()),
+                repository.getProject().getName(),
+                repository.getName(),
+                rewriteContext.getBranchName(),
+                "Auto rewrite %s".formatted(rewriteContext.getRecipeName()),
+                message,
+                properties().getGit().getGitBranchMain(),
+                mergeCommitMessage,
+                false,
+                rewriteContext.isTrace());
+            log.info("Pull request created: {}", mergeCommitMessage);
+        }
+    }
 }
@@ -0,0 +1,124 @@
+package com.github.ronlievens.regov.task.rewrite.execute;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ronlievens.regov.shell.model.AzureRepository;
+import com.github.ronlievens.regov.util.MapperUtils;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.github.ronlievens.regov.util.CacheUtils.getCacheDirectory;
+import static org.apache.commons.lang3.time.DurationFormatUtils.formatDurationHMS;
+
+// Longest processing time first: with parallel workers the most expensive repositories are started first, so the run
+// doesn't end with a single worker on the biggest repository. A single worker keeps the order of the repositories.
+@Slf4j
+public class RewriteExecutionPlanner {
+
+    private static final ObjectMapper MAPPER = MapperUtils.createJsonMapper(true, false);
+    private static final String CACHE_NAME = "execution-history";
+    private static final String HISTORY_FILE = "history.json";
+
+    // fallback estimate (clone, parse and push) when there is no history at all
+    private static final long DEFAULT_OVERHEAD_MILLIS = 15_000;
+    private static final double DEFAULT_MILLIS_PER_KB = 0.5;
+
+    private final Path historyFile;
+    private final Map<UUID, HistoryEntry> history;
+
+    public RewriteExecutionPlanner() {
+        this(getCacheDirectory(CACHE_NAME).resolve(HISTORY_FILE));
+    }
+
+    public RewriteExecutionPlanner(@NonNull final Path historyFile) {
+        this.historyFile = historyFile;
+        this.history = new ConcurrentHashMap<>();
+        if (Files.exists(historyFile)) {
+            try {
+                history.putAll(MAPPER.readValue(historyFile.toFile(), new TypeReference<Map<UUID, HistoryEntry>>() {
+                }));
+            } catch (IOException e) {
+                log.warn("Unable to read execution history {}: {}", historyFile, e.getMessage());
+            }
+        }
+    }
+
+    public record HistoryEntry(
+        Long size,
+        long durationMillis
+    ) {
+    }
+
+    public List<AzureRepository> plan(@NonNull final Collection<AzureRepository> repositories, final int workers) {
+        val millisPerKb = millisPerKb();
+        val estimates = new HashMap<AzureRepository, Long>();
+        for (val repository : repositories) {
+            estimates.put(repository, estimate(repository, millisPerKb));
+        }
+
+        val plan = new ArrayList<>(repositories);
+        if (workers > 1) {
+            plan.sort(Comparator.comparing(estimates::get, Comparator.reverseOrder()));
+        }
+
+        // simulate the workers, each repository goes to the first worker that is free
+        val workerLoad = new PriorityQueue<Long>();
+        for (var i = 0; i < workers; i++) {
+            workerLoad.add(0L);
+        }
+        for (val repository : plan) {
+            workerLoad.add(workerLoad.poll() + estimates.get(repository));
+        }
+        val predicted = workerLoad.stream().mapToLong(Long::longValue).max().orElse(0);
+
+        log.info("Planned {} repositories on {} worker(s), predicted total duration {}", plan.size(), workers, formatDurationHMS(predicted));
+        for (val repository : plan) {
+            log.debug("- {} estimated {}{}", repository.getName(), formatDurationHMS(estimates.get(repository)), history.containsKey(repository.getId()) ? " (history)" : "");
+        }
+        return plan;
+    }
+
+    public void record(@NonNull final AzureRepository repository, @NonNull final Duration duration) {
+        if (repository.getId() != null) {
+            history.put(repository.getId(), new HistoryEntry(repository.getSize(), duration.toMillis()));
+        }
+    }
+
+    public void save() {
+        try {
+            MAPPER.writeValue(historyFile.toFile(), new TreeMap<>(history));
+        } catch (IOException e) {
+            log.warn("Unable to write execution history {}: {}", historyFile, e.getMessage());
+        }
+    }
+
+    private long estimate(@NonNull final AzureRepository repository, final double millisPerKb) {
+        val entry = repository.getId() != null ? history.get(repository.getId()) : null;
+        if (entry != null) {
+            return entry.durationMillis();
+        }
+        val size = repository.getSize() != null ? repository.getSize() : 0L;
+        return DEFAULT_OVERHEAD_MILLIS + Math.round(size / 1024.0 * millisPerKb);
+    }
+
+    // calibrate the size based estimate on the repositories that are already measured
+    private double millisPerKb() {
+        var sizeKb = 0.0;
+        var millis = 0L;
+        for (val entry : history.values()) {
+            if (entry.size() != null && entry.size() > 0) {
+                sizeKb += entry.size() / 1024.0;
+                millis += Math.max(0, entry.durationMillis() - DEFAULT_OVERHEAD_MILLIS);
+            }
+        }
+        return sizeKb > 0 ? millis / sizeKb : DEFAULT_MILLIS_PER_KB;
+    }
+}
@@ -0,0 +1,17 @@
+package com.github.ronlievens.regov.task.rewrite.model;
+
+import lombok.*;
+
+@ToString
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class CampaignModel {
+
+    private String ticket;
+    private String recipe;
+    private String recipeLocation;
+    private String branch;
+}
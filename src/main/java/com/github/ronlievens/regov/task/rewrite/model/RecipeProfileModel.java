@@ -0,0 +1,17 @@
+package com.github.ronlievens.regov.task.rewrite.model;
+
+import lombok.*;
+
+@ToString
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class RecipeProfileModel {
+
+    private String recipe;
+    private long sourceFiles;
+    private long scanMillis;
+    private long editMillis;
+}
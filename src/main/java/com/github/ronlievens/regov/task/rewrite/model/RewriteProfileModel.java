@@ -0,0 +1,28 @@
+package com.github.ronlievens.regov.task.rewrite.model;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@ToString
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class RewriteProfileModel {
+
+    private String repository;
+
+    private long parseMillis;
+    private long runMillis;
+    private long writeMillis;
+
+    private int cycles;
+    private int sourceFiles;
+    private int changedFiles;
+
+    @Builder.Default
+    private List<RecipeProfileModel> recipes = new ArrayList<>();
+}
@@ -0,0 +1,159 @@
+package com.github.ronlievens.regov.task.rewrite.recipes;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ronlievens.regov.shell.AzureMavenVersionShell;
+import com.github.ronlievens.regov.util.MapperUtils;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.apache.commons.lang3.StringUtils;
+import org.openrewrite.Recipe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.github.ronlievens.regov.util.CacheUtils.getCacheDirectory;
+
+// The latest versions of the maven artifacts, shared by all the recipes of a run and persisted between runs (saved once
+// when the run scope is closed).
+@Slf4j
+public class MavenVersionCache implements Closeable {
+
+    private static final ObjectMapper MAPPER = MapperUtils.createJsonMapper(true, false);
+    private static final String CACHE_NAME = "maven-versions";
+    private static final String CACHE_FILE = "versions.json";
+    private static final Duration DEFAULT_TTL = Duration.ofHours(1);
+
+    private final AzureMavenVersionShell azureMavenVersionShell;
+    private final Duration ttl;
+    private final Path cacheFile;
+    private final Map<String, CachedVersion> versions;
+    private final Map<String, CompletableFuture<CachedVersion>> lookups;
+    private volatile boolean modified;
+
+    public MavenVersionCache() {
+        this(RecipeDependencyService.getInstance().getDependency(AzureMavenVersionShell.class), DEFAULT_TTL, getCacheDirectory(CACHE_NAME).resolve(CACHE_FILE));
+    }
+
+    public MavenVersionCache(@NonNull final AzureMavenVersionShell azureMavenVersionShell, @NonNull final Duration ttl, @NonNull final Path cacheFile) {
+        this.azureMavenVersionShell = azureMavenVersionShell;
+        this.ttl = ttl;
+        this.cacheFile = cacheFile;
+        this.versions = new ConcurrentHashMap<>();
+        this.lookups = new ConcurrentHashMap<>();
+        if (Files.exists(cacheFile)) {
+            try {
+                versions.putAll(MAPPER.readValue(cacheFile.toFile(), new TypeReference<Map<String, CachedVersion>>() {
+                }));
+            } catch (IOException e) {
+                log.warn("Unable to read maven version cache {}: {}", cacheFile, e.getMessage());
+            }
+        }
+    }
+
+    public record CachedVersion(
+        String version,
+        long checked
+    ) {
+    }
+
+    public String lookupLastVersion(@NonNull final String groupId, @NonNull final String artifactId) {
+        val key = key(groupId, artifactId);
+        val cached = versions.get(key);
+        if (isValid(cached)) {
+            return cached.version();
+        }
+
+        // concurrent lookups of the same artifact wait for the first one, so the metadata is fetched once and the lookup
+        // of one artifact never blocks the lookups of the others
+        val lookup = new CompletableFuture<CachedVersion>();
+        val running = lookups.putIfAbsent(key, lookup);
+        if (running != null) {
+            try {
+                return running.join().version();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            var resolved = versions.get(key);
+            if (!isValid(resolved)) {
+                resolved = new CachedVersion(azureMavenVersionShell.lookupLastVersion(groupId, artifactId), System.currentTimeMillis());
+                versions.put(key, resolved);
+                modified = true;
+            }
+            lookup.complete(resolved);
+            return resolved.version();
+        } catch (RuntimeException e) {
+            lookup.completeExceptionally(e);
+            throw e;
+        } finally {
+            lookups.remove(key, lookup);
+        }
+    }
+
+    // resolves the artifacts of the recipes with autoUpdateVersion before the run, the visitors only do a map lookup
+    public void prefetch(@NonNull final Recipe recipe) {
+        val coordinates = new TreeSet<String>();
+        collect(recipe, coordinates);
+        if (coordinates.isEmpty()) {
+            return;
+        }
+
+        log.info("Prefetch the latest version of {} artifact(s)", coordinates.size());
+        coordinates.parallelStream().forEach(coordinate -> {
+            val parts = coordinate.split(":");
+            try {
+                lookupLastVersion(parts[0], parts[1]);
+            } catch (RuntimeException e) {
+                log.warn("Unable to prefetch the latest version of {}: {}", coordinate, e.getMessage());
+            }
+        });
+    }
+
+    private static void collect(@NonNull final Recipe recipe, @NonNull final Set<String> coordinates) {
+        if (recipe instanceof UpdateDependencyRecipe update && Boolean.TRUE.equals(update.getAutoUpdateVersion())) {
+            val groupId = StringUtils.isNotBlank(update.getNewGroupId()) ? update.getNewGroupId() : update.getGroupId();
+            val artifactId = StringUtils.isNotBlank(update.getNewArtifactId()) ? update.getNewArtifactId() : update.getArtifactId();
+            if (groupId != null && artifactId != null) {
+                coordinates.add(key(groupId, artifactId));
+            }
+        } else if (recipe instanceof PomChangesRecipe pomChangesRecipe) {
+            pomChangesRecipe.getChanges().forEach(change -> collect(change, coordinates));
+        }
+        recipe.getRecipeList().forEach(child -> collect(child, coordinates));
+    }
+
+    private boolean isValid(final CachedVersion cached) {
+        return cached != null && System.currentTimeMillis() - cached.checked() < ttl.toMillis();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!modified) {
+            return;
+        }
+        try {
+            MAPPER.writeValue(cacheFile.toFile(), new TreeMap<>(versions));
+            modified = false;
+        } catch (IOException e) {
+            log.warn("Unable to write maven version cache {}: {}", cacheFile, e.getMessage());
+        }
+    }
+
+    private static String key(@NonNull final String groupId, @NonNull final String artifactId) {
+        return groupId + ":" + artifactId;
+    }
+}
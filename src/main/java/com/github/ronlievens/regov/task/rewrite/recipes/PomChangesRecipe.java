@@ -0,0 +1,253 @@
+package com.github.ronlievens.regov.task.rewrite.recipes;
+
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.openrewrite.*;
+import org.openrewrite.xml.XPathMatcher;
+import org.openrewrite.xml.XmlIsoVisitor;
+import org.openrewrite.xml.tree.Content;
+import org.openrewrite.xml.tree.Xml;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+// Applies the add, remove and update operations of the custom pom recipes in a single traversal of the pom.xml.
+// The dependency tags are indexed once by groupId:artifactId (a pom can contain the same coordinates more than once,
+// like a jar and a test-jar) and only the changed tags are formatted.
+@Slf4j
+@Data
+@NoArgsConstructor(force = true)
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class PomChangesRecipe extends Recipe {
+
+    private final List<Recipe> changes;
+
+    @Override
+    public String getDisplayName() {
+        return "Change Maven pom";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Add, remove and update dependencies and the parent of the pom.xml in a single pass.";
+    }
+
+    public static PomChangesRecipe fuse(@NonNull final Recipe recipe) {
+        val changes = new ArrayList<Recipe>();
+        collect(recipe, changes);
+        return new PomChangesRecipe(changes);
+    }
+
+    private static void collect(@NonNull final Recipe recipe, @NonNull final List<Recipe> changes) {
+        if (recipe instanceof PomChangesRecipe pomChangesRecipe) {
+            changes.addAll(pomChangesRecipe.getChanges());
+        } else if (recipe.getRecipeList().isEmpty()) {
+            changes.add(recipe);
+        } else {
+            for (val child : recipe.getRecipeList()) {
+                collect(child, changes);
+            }
+        }
+    }
+
+    @Override
+    public TreeVisitor<?, ExecutionContext> getVisitor() {
+        return Preconditions.check(new FindSourceFiles("pom.xml"), new XmlIsoVisitor<ExecutionContext>() {
+            private final XPathMatcher dependenciesXpath = new XPathMatcher("/project/dependencies");
+            private final XPathMatcher dependencyManagementXpath = new XPathMatcher("/project/dependencyManagement/dependencies");
+            private final XPathMatcher parentXpath = new XPathMatcher("/project/parent");
+
+            @Override
+            public Xml.Tag visitTag(Xml.Tag tag, ExecutionContext ctx) {
+                // the matched sections are rewritten as a whole, there is no need to visit their children
+                if (dependenciesXpath.matches(getCursor())) {
+                    return changeDependencies(tag, ctx, false);
+                }
+                if (dependencyManagementXpath.matches(getCursor())) {
+                    return changeDependencies(tag, ctx, true);
+                }
+                if (parentXpath.matches(getCursor())) {
+                    return changeParent(tag, ctx);
+                }
+                return super.visitTag(tag, ctx);
+            }
+
+            private Xml.Tag changeDependencies(Xml.Tag tag, ExecutionContext ctx, boolean dependencyManagement) {
+                if (tag.getContent() == null) {
+                    return tag;
+                }
+
+                val content = new ArrayList<Content>(tag.getContent());
+                val originalSize = content.size();
+                val index = new HashMap<String, List<Integer>>();
+                for (var i = 0; i < content.size(); i++) {
+                    if (content.get(i) instanceof Xml.Tag dependency && "dependency".equals(dependency.getName())) {
+                        index.computeIfAbsent(key(childValue(dependency, "groupId"), childValue(dependency, "artifactId")), key -> new ArrayList<>()).add(i);
+                    }
+                }
+
+                var changed = false;
+                for (val change : changes) {
+                    if (change instanceof AddDependencyRecipe add && !dependencyManagement) {
+                        val key = key(add.getGroupId(), add.getArtifactId());
+                        if (!index.containsKey(key)) {
+                            index.computeIfAbsent(key, k -> new ArrayList<>()).add(content.size());
+                            content.add(autoFormat(buildDependency(add).withPrefix("\n"), ctx, getCursor()));
+                            changed = true;
+                        }
+                    } else if (change instanceof RemoveDependencyRecipe remove && !dependencyManagement) {
+                        val positions = index.remove(key(remove.getGroupId(), remove.getArtifactId()));
+                        if (positions != null) {
+                            positions.forEach(position -> content.set(position, null));
+                            changed = true;
+                        }
+                    } else if (change instanceof UpdateDependencyRecipe update && (!dependencyManagement || Boolean.TRUE.equals(update.getEnableDependencyManagement()))) {
+                        val positions = index.remove(key(update.getGroupId(), update.getArtifactId()));
+                        if (positions != null) {
+                            for (val position : positions) {
+                                val dependency = (Xml.Tag) content.get(position);
+                                val updated = updateDependency(dependency, update, ctx);
+                                content.set(position, updated);
+                                index.computeIfAbsent(key(childValue(updated, "groupId"), childValue(updated, "artifactId")), key -> new ArrayList<>()).add(position);
+                                changed |= updated != dependency;
+                            }
+                        }
+                    }
+                }
+
+                if (!changed) {
+                    return tag;
+                }
+
+                // added dependencies are placed on top, the last added first
+                val result = new ArrayList<Content>(content.size());
+                for (var i = content.size() - 1; i >= originalSize; i--) {
+                    result.add(content.get(i));
+                }
+                for (var i = 0; i < originalSize; i++) {
+                    if (content.get(i) != null) {
+                        result.add(content.get(i));
+                    }
+                }
+
+                // an empty dependencies section is removed, like the separate recipes do
+                for (val item : result) {
+                    if (item instanceof Xml.Tag) {
+                        return tag.withContent(result);
+                    }
+                }
+                return null;
+            }
+
+            private Xml.Tag updateDependency(Xml.Tag dependency, UpdateDependencyRecipe update, ExecutionContext ctx) {
+                var tag = dependency;
+                if (StringUtils.isNotBlank(update.getNewGroupId())) {
+                    tag = setChild(tag, "groupId", update.getNewGroupId(), null, getCursor(), ctx);
+                }
+                if (StringUtils.isNotBlank(update.getNewArtifactId())) {
+                    tag = setChild(tag, "artifactId", update.getNewArtifactId(), null, getCursor(), ctx);
+                }
+
+                val latestVersion = Boolean.TRUE.equals(update.getAutoUpdateVersion()) ? findLatestVersion(tag) : null;
+                if (latestVersion != null) {
+                    tag = setChild(tag, "version", latestVersion, "artifactId", getCursor(), ctx);
+                } else if (update.getNewVersion() != null) {
+                    tag = StringUtils.isNotBlank(update.getNewVersion()) ? setChild(tag, "version", update.getNewVersion(), "artifactId", getCursor(), ctx) : removeChild(tag, "version");
+                }
+
+                if (update.getNewScope() != null) {
+                    tag = StringUtils.isNotBlank(update.getNewScope()) ? setChild(tag, "scope", update.getNewScope(), null, getCursor(), ctx) : removeChild(tag, "scope");
+                }
+                return tag;
+            }
+
+            private Xml.Tag changeParent(Xml.Tag parent, ExecutionContext ctx) {
+                var tag = parent;
+                for (val change : changes) {
+                    if (change instanceof UpdateParentRecipe update) {
+                        if (StringUtils.isNotBlank(update.getNewGroupId())) {
+                            tag = setChild(tag, "groupId", update.getNewGroupId(), null, getCursor().getParentOrThrow(), ctx);
+                        }
+                        if (StringUtils.isNotBlank(update.getNewArtifactId())) {
+                            tag = setChild(tag, "artifactId", update.getNewArtifactId(), null, getCursor().getParentOrThrow(), ctx);
+                        }
+                        if (update.getNewVersion() != null) {
+                            tag = StringUtils.isNotBlank(update.getNewVersion()) ? setChild(tag, "version", update.getNewVersion(), "artifactId", getCursor().getParentOrThrow(), ctx) : removeChild(tag, "version");
+                        }
+                    }
+                }
+                return tag;
+            }
+
+            // updates the value of an existing child, a missing child is added after the given sibling (or at the end)
+            private Xml.Tag setChild(Xml.Tag tag, String name, String value, String after, Cursor parent, ExecutionContext ctx) {
+                final List<Content> content = tag.getContent() == null ? new ArrayList<>() : new ArrayList<>(tag.getContent());
+                var position = content.size();
+                for (var i = 0; i < content.size(); i++) {
+                    if (content.get(i) instanceof Xml.Tag child) {
+                        if (name.equals(child.getName())) {
+                            if (value.equals(child.getValue().orElse(null))) {
+                                return tag;
+                            }
+                            content.set(i, child.withValue(value));
+                            return tag.withContent(content);
+                        }
+                        if (child.getName().equals(after)) {
+                            position = i + 1;
+                        }
+                    }
+                }
+                content.add(position, Xml.Tag.build("<%s>%s</%s>".formatted(name, value, name)).withPrefix("\n"));
+                return autoFormat(tag.withContent(content), ctx, parent);
+            }
+
+            private Xml.Tag removeChild(Xml.Tag tag, String name) {
+                if (tag.getContent() == null) {
+                    return tag;
+                }
+                val content = new ArrayList<Content>(tag.getContent().size());
+                for (val item : tag.getContent()) {
+                    if (!(item instanceof Xml.Tag child && name.equals(child.getName()))) {
+                        content.add(item);
+                    }
+                }
+                return content.size() == tag.getContent().size() ? tag : tag.withContent(content);
+            }
+
+            private String findLatestVersion(Xml.Tag dependency) {
+                val mavenVersionCache = RecipeDependencyService.getInstance().getDependency(MavenVersionCache.class);
+                val artifactId = childValue(dependency, "artifactId");
+                val latestVersion = mavenVersionCache.lookupLastVersion(childValue(dependency, "groupId"), artifactId);
+                if (latestVersion != null) {
+                    log.info("Found new version {} for {}", latestVersion, artifactId);
+                }
+                return latestVersion;
+            }
+        });
+    }
+
+    private static Xml.Tag buildDependency(@NonNull final AddDependencyRecipe add) {
+        return Xml.Tag.build("<dependency>\n<groupId>" + add.getGroupId() + "</groupId>\n<artifactId>" + add.getArtifactId() + "</artifactId>\n"
+            + (add.getVersion() == null ? "" : "<version>" + add.getVersion() + "</version>\n")
+            + (add.getScope() == null || "compile".equals(add.getScope()) ? "" : "<scope>" + add.getScope() + "</scope>\n")
+            + "</dependency>");
+    }
+
+    private static String childValue(@NonNull final Xml.Tag tag, @NonNull final String name) {
+        if (tag.getContent() != null) {
+            for (val item : tag.getContent()) {
+                if (item instanceof Xml.Tag child && name.equals(child.getName())) {
+                    return child.getValue().orElse(null);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String key(final String groupId, final String artifactId) {
+        return groupId + ":" + artifactId;
+    }
+}
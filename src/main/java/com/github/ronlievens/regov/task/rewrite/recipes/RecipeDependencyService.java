@@ -1,57 +1,93 @@
 package com.github.ronlievens.regov.task.rewrite.recipes;
 
+import com.github.ronlievens.regov.shell.AzureMavenVersionShell;
 import lombok.Getter;
 import lombok.NonNull;
-import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
 
-import java.lang.reflect.InvocationTargetException;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.withSettings;
 
-@Setter
-@Getter
+// Provides the shared services of the recipes, safe to use from recipes that run in parallel.
+// A dependency lives as long as its scope: the JVM or a single execute run. The run dependencies that are closeable are
+// closed at the end of the run.
+@Slf4j
 public class RecipeDependencyService {
-    private static RecipeDependencyService instance;
 
-    private boolean mockEnabled;
-    private final Map<Class<?>, Object> dependencies;
-
-    private RecipeDependencyService() {
-        dependencies = new HashMap<>();
+    private enum Scope {
+        JVM,
+        RUN
     }
 
-    public static synchronized RecipeDependencyService getInstance() {
-        if (instance == null) {
-            instance = new RecipeDependencyService();
-        }
-        return instance;
-    }
+    private static final RecipeDependencyService INSTANCE = new RecipeDependencyService();
 
-    private <T> void registerDependency(@NonNull final Class<T> clazz, @NonNull final T implementation) {
-        dependencies.put(clazz, implementation);
+    @Getter
+    private volatile boolean mockEnabled;
+    private final Map<Class<?>, Scope> scopes;
+    private final Map<Class<?>, Object> jvmDependencies;
+    private final Map<Class<?>, Object> runDependencies;
+
+    private RecipeDependencyService() {
+        scopes = new ConcurrentHashMap<>();
+        jvmDependencies = new ConcurrentHashMap<>();
+        runDependencies = new ConcurrentHashMap<>();
+
+        scopes.put(AzureMavenVersionShell.class, Scope.JVM);
+        scopes.put(MavenVersionCache.class, Scope.RUN);
     }
 
-    @SuppressWarnings("unchecked")
-    private <T> T resolveDependency(Class<T> clazz) {
-        return (T) dependencies.get(clazz);
+    public static RecipeDependencyService getInstance() {
+        return INSTANCE;
     }
 
     public void setMockEnabled(final boolean mockEnabled) {
         this.mockEnabled = mockEnabled;
-        dependencies.clear();
+        jvmDependencies.clear();
+        runDependencies.clear();
+    }
+
+    public <T> T getDependency(@NonNull final Class<T> clazz) {
+        val dependencies = dependencies(clazz);
+        val dependency = dependencies.get(clazz);
+        if (dependency != null) {
+            return clazz.cast(dependency);
+        }
+        // only the first lookup creates the instance, concurrent lookups wait for it
+        return clazz.cast(dependencies.computeIfAbsent(clazz, this::create));
     }
 
-    public <T> T getDependency(@NonNull final Class<T> clazz) throws NoSuchMethodException, InvocationTargetException, InstantiationException, IllegalAccessException {
-        if (!dependencies.containsKey(clazz)) {
-            if (mockEnabled) {
-                registerDependency(clazz, mock(clazz, withSettings().verboseLogging()));
-            } else {
-                registerDependency(clazz, clazz.getDeclaredConstructor().newInstance());
+    public void clearRunScope() {
+        for (val dependency : runDependencies.values()) {
+            if (dependency instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Unable to close {}: {}", dependency.getClass().getSimpleName(), e.getMessage());
+                }
             }
         }
-        return resolveDependency(clazz);
+        runDependencies.clear();
+    }
+
+    private Map<Class<?>, Object> dependencies(@NonNull final Class<?> clazz) {
+        return switch (scopes.getOrDefault(clazz, Scope.RUN)) {
+            case JVM -> jvmDependencies;
+            case RUN -> runDependencies;
+        };
+    }
+
+    private Object create(@NonNull final Class<?> clazz) {
+        if (mockEnabled) {
+            return mock(clazz, withSettings().verboseLogging());
+        }
+        try {
+            return clazz.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
     }
 }
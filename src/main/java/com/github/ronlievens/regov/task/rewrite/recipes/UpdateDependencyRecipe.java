@@ -1,6 +1,5 @@
 package com.github.ronlievens.regov.task.rewrite.recipes;
 
-import com.github.ronlievens.regov.shell.AzureMavenVersionShell;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -11,7 +10,6 @@ import org.openrewrite.xml.XmlIsoVisitor;
 import org.openrewrite.xml.tree.Content;
 import org.openrewrite.xml.tree.Xml;
 
-import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -128,18 +126,13 @@ public class UpdateDependencyRecipe extends Recipe {
             }
 
             private Optional<String> findLatestVersion(final Map<String, String> dependency) {
-                AzureMavenVersionShell azureMavenVersionShell = null;
-                try {
-                    azureMavenVersionShell = RecipeDependencyService.getInstance().getDependency(AzureMavenVersionShell.class);
-                } catch (NoSuchMethodException | InvocationTargetException | InstantiationException | IllegalAccessException e) {
-                    throw new RuntimeException(e);
-                }
+                val mavenVersionCache = RecipeDependencyService.getInstance().getDependency(MavenVersionCache.class);
                 var groupId = dependency.get("groupId");
                 if (StringUtils.isNotBlank(newGroupId)) {
                     groupId = newGroupId;
                 }
                 val artifactId = StringUtils.isNotBlank(newArtifactId) ? newArtifactId : dependency.get("artifactId");
-                val latestVersion = azureMavenVersionShell.lookupLastVersion(groupId, artifactId);
+                val latestVersion = mavenVersionCache.lookupLastVersion(groupId, artifactId);
                 return Optional.ofNullable(latestVersion).stream().peek(version -> log.info("Found new version {} for {}", version, artifactId)).findAny();
             }
         });
@@ -0,0 +1,168 @@
+package com.github.ronlievens.regov.task.rewrite.report;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ronlievens.regov.shell.AzureRestShell;
+import com.github.ronlievens.regov.util.MapperUtils;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.github.ronlievens.regov.util.CacheUtils.getCacheDirectory;
+import static com.github.ronlievens.regov.util.CacheUtils.sha256;
+
+// The builds of the pipeline branch of a project, queried once per project instead of per repository. The builds carry
+// their definition (name and path), so the definitions don't have to be listed. The index is persisted and the next
+// refresh only asks for the builds queued since the last one and for the builds that were not completed yet. An index
+// that isn't complete (written before the builds were paged) is built again from the whole window.
+@Slf4j
+public class BuildIndex {
+
+    private static final ObjectMapper MAPPER = MapperUtils.createJsonMapper(true, false);
+    private static final String CACHE_NAME = "build-index";
+    private static final String CACHE_FILE = "%s.json";
+    private static final Duration WINDOW = Duration.ofDays(90);
+    private static final String STATUS_COMPLETED = "completed";
+
+    private final AzureRestShell azureRestShell;
+    private final Path cacheDirectory;
+    private final Map<UUID, Map<String, BuildEntry>> index;
+
+    public BuildIndex(@NonNull final AzureRestShell azureRestShell) {
+        this(azureRestShell, getCacheDirectory(CACHE_NAME));
+    }
+
+    public BuildIndex(@NonNull final AzureRestShell azureRestShell, @NonNull final Path cacheDirectory) {
+        this.azureRestShell = azureRestShell;
+        this.cacheDirectory = cacheDirectory;
+        this.index = new ConcurrentHashMap<>();
+    }
+
+    public record BuildEntry(
+        int id,
+        String definition,
+        String path,
+        String message,
+        String status,
+        String result,
+        String queueTime
+    ) {
+
+        public String buildStatus() {
+            return result != null ? result : status;
+        }
+    }
+
+    public record ProjectBuilds(
+        boolean complete,
+        String lastQueueTime,
+        List<BuildEntry> builds
+    ) {
+    }
+
+    // returns false when the builds of the project can't be queried, the caller falls back on the lookup per repository
+    public boolean refresh(@NonNull final String organization, @NonNull final UUID project, @NonNull final String branch, final boolean trace) {
+        val cacheFile = cacheDirectory.resolve(CACHE_FILE.formatted(sha256(organization + "/" + project + "/" + branch)));
+        val builds = new HashMap<Integer, BuildEntry>();
+        ProjectBuilds cached = null;
+        if (Files.exists(cacheFile)) {
+            try {
+                cached = MAPPER.readValue(cacheFile.toFile(), ProjectBuilds.class);
+                if (cached.complete()) {
+                    cached.builds().forEach(build -> builds.put(build.id(), build));
+                } else {
+                    cached = null;
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Unable to read build index {}: {}", cacheFile, e.getMessage());
+            }
+        }
+
+        val windowStart = Instant.now().minus(WINDOW);
+        try {
+            val minTime = cached != null && cached.lastQueueTime() != null ? cached.lastQueueTime() : windowStart.toString();
+            val branchName = branch.startsWith("refs/") ? branch : "refs/heads/" + branch;
+            azureRestShell.listBuilds(organization, project, branchName, minTime, trace).forEach(build -> add(builds, build));
+
+            val pending = builds.values().stream().filter(build -> !STATUS_COMPLETED.equals(build.status())).map(BuildEntry::id).toList();
+            if (!pending.isEmpty()) {
+                azureRestShell.listBuilds(organization, project, pending, trace).forEach(build -> add(builds, build));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Unable to list the builds of project {}: {}", project, e.getMessage());
+            return false;
+        }
+
+        builds.values().removeIf(build -> isBefore(build.queueTime(), windowStart));
+        val lastQueueTime = builds.values().stream().map(BuildEntry::queueTime).filter(Objects::nonNull).max(Comparator.comparing(BuildIndex::instant));
+
+        val projectIndex = new HashMap<String, BuildEntry>();
+        for (val build : builds.values()) {
+            projectIndex.merge(key(build.path(), build.definition(), build.message()), build, (current, candidate) -> candidate.id() > current.id() ? candidate : current);
+        }
+        index.put(project, projectIndex);
+        log.info("Indexed {} builds of project {}", builds.size(), project);
+
+        try {
+            MAPPER.writeValue(cacheFile.toFile(), new ProjectBuilds(true, lastQueueTime.orElse(null), List.copyOf(builds.values())));
+        } catch (IOException e) {
+            log.warn("Unable to write build index {}: {}", cacheFile, e.getMessage());
+        }
+        return true;
+    }
+
+    public boolean isIndexed(@NonNull final UUID project) {
+        return index.containsKey(project);
+    }
+
+    // the newest build of the pipeline of the repository that was triggered by the commit message
+    public Optional<BuildEntry> find(@NonNull final UUID project, @NonNull final String path, @NonNull final String definition, @NonNull final String message) {
+        return Optional.ofNullable(index.getOrDefault(project, Map.of()).get(key(path, definition, message)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void add(@NonNull final Map<Integer, BuildEntry> builds, @NonNull final Map<String, Object> build) {
+        if (!(build.get("id") instanceof Integer id) || !(build.get("definition") instanceof Map<?, ?> definition)) {
+            return;
+        }
+        val triggerInfo = build.get("triggerInfo") instanceof Map<?, ?> info ? (Map<String, Object>) info : Map.<String, Object>of();
+        builds.put(id, new BuildEntry(id,
+            (String) definition.get("name"),
+            (String) definition.get("path"),
+            (String) triggerInfo.get("ci.message"),
+            (String) build.get("status"),
+            (String) build.get("result"),
+            (String) build.get("queueTime")));
+    }
+
+    private static String key(final String path, final String definition, final String message) {
+        return "%s\n%s\n%s".formatted(path, definition != null ? definition.toLowerCase(Locale.ROOT) : null, message != null ? message.trim().toLowerCase(Locale.ROOT) : null);
+    }
+
+    private static boolean isBefore(final String time, @NonNull final Instant instant) {
+        return time != null && instant(time).isBefore(instant);
+    }
+
+    private static Instant instant(@NonNull final String time) {
+        try {
+            return Instant.parse(time);
+        } catch (DateTimeParseException e) {
+            return Instant.EPOCH;
+        }
+    }
+}
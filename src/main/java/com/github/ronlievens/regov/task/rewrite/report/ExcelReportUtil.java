@@ -6,12 +6,23 @@ import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.apache.poi.common.usermodel.HyperlinkType;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CreationHelper;
 import org.apache.poi.ss.usermodel.FillPatternType;
 import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
-import java.io.FileOutputStream;
+import java.io.BufferedOutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 import static com.github.ronlievens.regov.util.PathUtils.createDirectory;
 import static com.github.ronlievens.regov.util.PathUtils.getFileFromClasspath;
@@ -23,253 +34,181 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
 public final class ExcelReportUtil {
 
     private static final String EXCEL_TEMPLATE = "templates/report.xlsx";
+    private static final int FIRST_ROW = 4;
+    // only this many rows are kept in memory, the older rows are flushed to a temporary file
+    private static final int ROW_WINDOW = 100;
+    private static final List<Column> COLUMNS = columns();
 
-    public static void createExcelReport(final String ticketUrl, @NonNull final Path output, @NonNull final ReportModel reportModel) {
-        try {
-            val fileIS = getFileFromClasspath(EXCEL_TEMPLATE);
-            val workbook = new XSSFWorkbook(fileIS);
-            val sheet = workbook.getSheetAt(0);
-
-            val whiteFont = workbook.createFont();
-            whiteFont.setColor(IndexedColors.WHITE.index);
-
-            val blackFont = workbook.createFont();
-            blackFont.setColor(IndexedColors.BLACK.index);
-
-            val bgGreen = workbook.createCellStyle();
-            bgGreen.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-            bgGreen.setFillForegroundColor(IndexedColors.GREEN.getIndex());
-            bgGreen.setFont(whiteFont);
+    private enum Fill {
+        GREEN(IndexedColors.GREEN),
+        BLUE(IndexedColors.BLUE),
+        ORANGE(IndexedColors.ORANGE),
+        RED(IndexedColors.RED);
 
-            val bgBlue = workbook.createCellStyle();
-            bgBlue.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-            bgBlue.setFillForegroundColor(IndexedColors.BLUE.getIndex());
-            bgBlue.setFont(whiteFont);
+        private final IndexedColors color;
 
-            val bgYellow = workbook.createCellStyle();
-            bgYellow.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-            bgYellow.setFillForegroundColor(IndexedColors.YELLOW.getIndex());
-            bgYellow.setFont(blackFont);
+        Fill(final IndexedColors color) {
+            this.color = color;
+        }
+    }
 
-            val bgOrange = workbook.createCellStyle();
-            bgOrange.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-            bgOrange.setFillForegroundColor(IndexedColors.ORANGE.getIndex());
-            bgOrange.setFont(whiteFont);
+    private record Column(
+        Function<ReportRepositoryModel, Object> value,
+        Function<ReportRepositoryModel, Fill> fill,
+        Function<ReportRepositoryModel, String> link
+    ) {
 
-            val bgRed = workbook.createCellStyle();
-            bgRed.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-            bgRed.setFillForegroundColor(IndexedColors.RED.getIndex());
-            bgRed.setFont(whiteFont);
+        static Column of(@NonNull final Function<ReportRepositoryModel, Object> value) {
+            return new Column(value, repository -> null, repository -> null);
+        }
+    }
 
-            val bgFalse = workbook.createCellStyle();
-            bgFalse.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-            bgFalse.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
-            bgFalse.setFont(blackFont);
+    public static void createExcelReport(final String ticketUrl, @NonNull final Path output, @NonNull final ReportModel reportModel) {
+        try (val template = new XSSFWorkbook(getFileFromClasspath(EXCEL_TEMPLATE))) {
+            val templateSheet = template.getSheetAt(0);
 
             // C2 ticket
-            var row = sheet.getRow(0);
-            var cell = row.createCell(2);
-            cell.setCellValue(reportModel.getTicket());
-            var link = workbook.getCreationHelper().createHyperlink(HyperlinkType.URL);
+            val ticket = templateSheet.getRow(0).createCell(2);
+            ticket.setCellValue(reportModel.getTicket());
             if (isNotBlank(ticketUrl)) {
+                val link = template.getCreationHelper().createHyperlink(HyperlinkType.URL);
                 link.setAddress(ticketUrl.formatted(reportModel.getTicket()));
-                cell.setHyperlink(link);
-            } else {
-                cell.setCellValue(reportModel.getTicket());
+                ticket.setHyperlink(link);
             }
 
-            var rowCounter = 4;
-            for (val repository : reportModel.getRepositories()) {
-                row = sheet.createRow(rowCounter);
-
-                // Repository name
-                var cellIndex = 0;
-                cell = row.createCell(cellIndex);
-                cell.setCellValue(repository.getName());
-
-                // Project name
-                cellIndex++;
-                cell = row.createCell(cellIndex);
-                cell.setCellValue(repository.getProjectName());
-
-                // Change - commit
-                cellIndex++;
-                cell = row.createCell(cellIndex);
-                cell.setCellValue(repository.getChange().isCommit());
-                if (repository.getChange().isCommit()) {
-                    cell.setCellStyle(bgGreen);
-                } else {
-                    cell.setCellStyle(bgRed);
-                }
-
-                // Change - merge
-                cellIndex++;
-                cell = row.createCell(cellIndex);
-                cell.setCellValue(repository.getChange().isMerged());
-                if (repository.getChange().isMerged()) {
-                    cell.setCellStyle(bgGreen);
-                } else if (repository.getChange().isCommit()) {
-                    cell.setCellStyle(bgOrange);
-                } else {
-                    cell.setCellStyle(bgRed);
-                }
-
-                // Change - pull request
-                cellIndex++;
-                cell = row.createCell(cellIndex);
-                if (repository.getChange().isCommit()) {
-                    cell.setCellValue("%s [%s]".formatted(repository.getChange().getPullRequestStatus(), repository.getChange().getPullRequestId()));
-                    link = workbook.getCreationHelper().createHyperlink(HyperlinkType.URL);
-                    link.setAddress(repository.getChange().getPullRequestViewUrl());
-                    cell.setHyperlink(link);
-                    if (repository.getChange().isMerged()) {
-                        cell.setCellStyle(bgGreen);
-                    } else if (repository.getChange().isCommit()) {
-                        cell.setCellStyle(bgOrange);
-                    } else {
-                        cell.setCellStyle(bgRed);
-                    }
+            // the streaming sheet can only append rows after the rows of the template
+            for (int i = templateSheet.getLastRowNum(); i >= FIRST_ROW; i--) {
+                val row = templateSheet.getRow(i);
+                if (row != null) {
+                    templateSheet.removeRow(row);
                 }
+            }
 
-                // Change - build
-                cellIndex++;
-                cell = row.createCell(cellIndex);
-                if (repository.getChange().hasBuild()) {
-                    cell.setCellValue("%s [%s]".formatted(repository.getChange().getBuildStatus(), repository.getChange().getBuildId()));
-                    link = workbook.getCreationHelper().createHyperlink(HyperlinkType.URL);
-                    link.setAddress(repository.getChange().getBuildViewUrl());
-                    cell.setHyperlink(link);
-                    if (repository.getChange().isBuildSuccess()) {
-                        cell.setCellStyle(bgGreen);
-                    } else if (repository.getChange().isBuildInProgress()) {
-                        cell.setCellStyle(bgBlue);
-                    } else if (repository.getChange().isBuildFailed()) {
-                        cell.setCellStyle(bgRed);
-                    } else {
-                        cell.setCellStyle(bgOrange);
+            // closing the streaming workbook removes its temporary files
+            try (val workbook = new SXSSFWorkbook(template, ROW_WINDOW)) {
+                val sheet = workbook.getSheetAt(0);
+                sheet.trackAllColumnsForAutoSizing();
+                val styles = createStyles(workbook);
+                val helper = workbook.getCreationHelper();
+
+                var rowCounter = FIRST_ROW;
+                for (val repository : reportModel.getRepositories()) {
+                    val row = sheet.createRow(rowCounter++);
+                    for (int i = 0; i < COLUMNS.size(); i++) {
+                        writeCell(row.createCell(i), COLUMNS.get(i), repository, styles, helper);
                     }
                 }
 
-
-                // Acceptance - commit
-                cellIndex++;
-                cell = row.createCell(cellIndex);
-                cell.setCellValue(repository.getAcceptance().isCommit());
-                if (repository.getAcceptance().isCommit()) {
-                    cell.setCellStyle(bgGreen);
-                } else {
-                    cell.setCellStyle(bgRed);
-                }
-
-                // Acceptance - merge
-                cellIndex++;
-                cell = row.createCell(cellIndex);
-                cell.setCellValue(repository.getAcceptance().isMerged());
-                if (repository.getAcceptance().isMerged()) {
-                    cell.setCellStyle(bgGreen);
-                } else if (repository.getAcceptance().isCommit()) {
-                    cell.setCellStyle(bgOrange);
-                } else {
-                    cell.setCellStyle(bgRed);
+                for (int i = 0; i < COLUMNS.size(); i++) {
+                    sheet.autoSizeColumn(i);
                 }
 
-                // Acceptance - pull request
-                cellIndex++;
-                cell = row.createCell(cellIndex);
-                if (repository.getAcceptance().isCommit()) {
-                    cell.setCellValue("%s [%s]".formatted(repository.getAcceptance().getPullRequestStatus(), repository.getAcceptance().getPullRequestId()));
-                    link = workbook.getCreationHelper().createHyperlink(HyperlinkType.URL);
-                    link.setAddress(repository.getAcceptance().getPullRequestViewUrl());
-                    cell.setHyperlink(link);
-                    if (repository.getAcceptance().isMerged()) {
-                        cell.setCellStyle(bgGreen);
-                    } else if (repository.getAcceptance().isCommit()) {
-                        cell.setCellStyle(bgOrange);
-                    } else {
-                        cell.setCellStyle(bgRed);
-                    }
+                createDirectory(output.getParent());
+                try (val outputStream = new BufferedOutputStream(Files.newOutputStream(output))) {
+                    workbook.write(outputStream);
                 }
+            }
+        } catch (Exception e) {
+            log.error("{}: {}", e.getClass().getName(), e.getMessage(), e);
+        }
+    }
 
-                // Acceptance - original container
-                cellIndex++;
-                cell = row.createCell(cellIndex);
-                cell.setCellValue(repository.getAcceptance().getContainerOriginalVersion());
-
-                // Acceptance - new container
-                cellIndex++;
-                cell = row.createCell(cellIndex);
-                cell.setCellValue(repository.getAcceptance().getContainerNewVersion());
-
-                // Production- commit
-                cellIndex++;
-                cell = row.createCell(cellIndex);
-                cell.setCellValue(repository.getProduction().isCommit());
-                if (repository.getProduction().isCommit()) {
-                    cell.setCellStyle(bgGreen);
-                } else {
-                    cell.setCellStyle(bgRed);
-                }
+    private static void writeCell(@NonNull final Cell cell, @NonNull final Column column, @NonNull final ReportRepositoryModel repository, @NonNull final Map<Fill, CellStyle> styles, @NonNull final CreationHelper helper) {
+        val value = column.value().apply(repository);
+        if (value == null) {
+            return;
+        }
 
-                // Production - merge
-                cellIndex++;
-                cell = row.createCell(cellIndex);
-                cell.setCellValue(repository.getProduction().isMerged());
-                if (repository.getProduction().isMerged()) {
-                    cell.setCellStyle(bgGreen);
-                } else if (repository.getProduction().isCommit()) {
-                    cell.setCellStyle(bgOrange);
-                } else {
-                    cell.setCellStyle(bgRed);
-                }
+        if (value instanceof Boolean bool) {
+            cell.setCellValue(bool);
+        } else {
+            cell.setCellValue(value.toString());
+        }
 
-                // Production - pull request
-                cellIndex++;
-                cell = row.createCell(cellIndex);
-                if (repository.getProduction().isCommit()) {
-                    cell.setCellValue("%s [%s]".formatted(repository.getProduction().getPullRequestStatus(), repository.getProduction().getPullRequestId()));
-                    link = workbook.getCreationHelper().createHyperlink(HyperlinkType.URL);
-                    link.setAddress(repository.getProduction().getPullRequestViewUrl());
-                    cell.setHyperlink(link);
-                    if (repository.getProduction().isMerged()) {
-                        cell.setCellStyle(bgGreen);
-                    } else if (repository.getProduction().isCommit()) {
-                        cell.setCellStyle(bgOrange);
-                    } else {
-                        cell.setCellStyle(bgRed);
-                    }
-                }
+        val fill = column.fill().apply(repository);
+        if (fill != null) {
+            cell.setCellStyle(styles.get(fill));
+        }
 
-                // Production - original container
-                cellIndex++;
-                cell = row.createCell(cellIndex);
-                cell.setCellValue(repository.getProduction().getContainerOriginalVersion());
+        val address = column.link().apply(repository);
+        if (isNotBlank(address)) {
+            val link = helper.createHyperlink(HyperlinkType.URL);
+            link.setAddress(address);
+            cell.setHyperlink(link);
+        }
+    }
 
-                // Production - new container
-                cellIndex++;
-                cell = row.createCell(cellIndex);
-                cell.setCellValue(repository.getProduction().getContainerNewVersion());
+    // the styles are created once per workbook and shared by all the cells
+    private static Map<Fill, CellStyle> createStyles(@NonNull final Workbook workbook) {
+        val whiteFont = workbook.createFont();
+        whiteFont.setColor(IndexedColors.WHITE.index);
+
+        val styles = new EnumMap<Fill, CellStyle>(Fill.class);
+        for (val fill : Fill.values()) {
+            val style = workbook.createCellStyle();
+            style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+            style.setFillForegroundColor(fill.color.getIndex());
+            style.setFont(whiteFont);
+            styles.put(fill, style);
+        }
+        return styles;
+    }
 
-                // Total change
-                cellIndex++;
-                cell = row.createCell(cellIndex);
-                if (repository.isDone()) {
-                    cell.setCellValue("Done");
-                    cell.setCellStyle(bgGreen);
-                }
+    private static List<Column> columns() {
+        val columns = new ArrayList<Column>();
+        columns.add(Column.of(ReportRepositoryModel::getName));
+        columns.add(Column.of(ReportRepositoryModel::getProjectName));
+
+        addChangeColumns(columns, ReportRepositoryModel::getChange);
+        columns.add(new Column(
+            repository -> repository.getChange().hasBuild() ? "%s [%s]".formatted(repository.getChange().getBuildStatus(), repository.getChange().getBuildId()) : null,
+            repository -> buildFill(repository.getChange()),
+            repository -> repository.getChange().getBuildViewUrl()));
+
+        for (final Function<ReportRepositoryModel, ReportRepositoryChangeModel> environment : List.<Function<ReportRepositoryModel, ReportRepositoryChangeModel>>of(ReportRepositoryModel::getAcceptance, ReportRepositoryModel::getProduction)) {
+            addChangeColumns(columns, environment);
+            columns.add(Column.of(repository -> environment.apply(repository).getContainerOriginalVersion()));
+            columns.add(Column.of(repository -> environment.apply(repository).getContainerNewVersion()));
+        }
 
-                rowCounter++;
-            }
+        columns.add(new Column(
+            repository -> repository.isDone() ? "Done" : null,
+            repository -> Fill.GREEN,
+            repository -> null));
+        return List.copyOf(columns);
+    }
 
-            for (int i = 0; i <= row.getLastCellNum(); i++) {
-                sheet.autoSizeColumn(i);
-            }
+    // commit, merge and pull request of a change
+    private static void addChangeColumns(@NonNull final List<Column> columns, @NonNull final Function<ReportRepositoryModel, ReportRepositoryChangeModel> part) {
+        columns.add(new Column(
+            repository -> part.apply(repository).isCommit(),
+            repository -> part.apply(repository).isCommit() ? Fill.GREEN : Fill.RED,
+            repository -> null));
+        columns.add(new Column(
+            repository -> part.apply(repository).isMerged(),
+            repository -> mergeFill(part.apply(repository)),
+            repository -> null));
+        columns.add(new Column(
+            repository -> part.apply(repository).isCommit() ? "%s [%s]".formatted(part.apply(repository).getPullRequestStatus(), part.apply(repository).getPullRequestId()) : null,
+            repository -> mergeFill(part.apply(repository)),
+            repository -> part.apply(repository).getPullRequestViewUrl()));
+    }
 
-            createDirectory(output.getParent());
-            workbook.write(new FileOutputStream(output.toFile()));
-            workbook.close();
+    private static Fill mergeFill(@NonNull final ReportRepositoryChangeModel change) {
+        if (change.isMerged()) {
+            return Fill.GREEN;
+        }
+        return change.isCommit() ? Fill.ORANGE : Fill.RED;
+    }
 
-        } catch (Exception e) {
-            log.error("{}: {}", e.getClass().getName(), e.getMessage(), e);
+    private static Fill buildFill(@NonNull final ReportRepositoryChangeModel change) {
+        if (change.isBuildSuccess()) {
+            return Fill.GREEN;
+        } else if (change.isBuildInProgress()) {
+            return Fill.BLUE;
+        } else if (change.isBuildFailed()) {
+            return Fill.RED;
         }
+        return Fill.ORANGE;
     }
 }
@@ -0,0 +1,150 @@
+package com.github.ronlievens.regov.task.rewrite.report;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.ronlievens.regov.util.MapperUtils;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.apache.commons.io.FilenameUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+// The reported repositories are appended to a journal (one json document per line) as soon as they are reported, so an
+// interrupted report keeps its results. At the end of a run the journal is compacted into the result file.
+@Slf4j
+public class ReportJournal implements Closeable {
+
+    private static final ObjectMapper MAPPER = MapperUtils.createJsonMapper(true, true);
+    private static final ObjectWriter WRITER = MAPPER.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    private static final ObjectReader READER = MAPPER.readerFor(ReportRepositoryModel.class);
+    private static final String JOURNAL_EXTENSION = ".ndjson";
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+    private static final String TICKET = "ticket";
+    private static final String REPOSITORIES = "repositories";
+
+    private final Path resultFile;
+    private final Path journalFile;
+    private JsonGenerator journal;
+
+    public ReportJournal(@NonNull final Path resultFile) {
+        this.resultFile = resultFile;
+        this.journalFile = Path.of(FilenameUtils.removeExtension(resultFile.toString()) + JOURNAL_EXTENSION);
+    }
+
+    // every record is flushed, a crash loses at most the repository that was being written
+    public synchronized void append(@NonNull final ReportRepositoryModel repository) {
+        try {
+            if (journal == null) {
+                val existing = Files.exists(journalFile) && Files.size(journalFile) > 0;
+                journal = MAPPER.createGenerator(Files.newOutputStream(journalFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+                journal.setRootValueSeparator(null);
+                if (existing) {
+                    // a record that was cut off by a crash stays on a line of its own
+                    journal.writeRaw('\n');
+                }
+            }
+            MAPPER.writeValue(journal, repository);
+            journal.writeRaw('\n');
+            journal.flush();
+        } catch (IOException e) {
+            log.warn("Unable to append repository {} to the journal {}: {}", repository.getName(), journalFile, e.getMessage());
+        }
+    }
+
+    // the previous result is read one repository at a time
+    public Optional<ReportModel> readResult() throws IOException {
+        if (!Files.exists(resultFile)) {
+            return Optional.empty();
+        }
+
+        val report = new ReportModel();
+        try (val parser = MAPPER.createParser(resultFile.toFile())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Invalid report: %s".formatted(resultFile));
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                val field = parser.currentName();
+                val token = parser.nextToken();
+                if (TICKET.equals(field)) {
+                    report.setTicket(parser.getValueAsString());
+                } else if (REPOSITORIES.equals(field) && token == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        report.getRepositories().add(READER.readValue(parser));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return Optional.of(report);
+    }
+
+    // the records of the journal are newer than the result file, the last record of a repository wins
+    public int replay(@NonNull final ReportModel report) throws IOException {
+        if (!Files.exists(journalFile)) {
+            return 0;
+        }
+
+        var replayed = 0;
+        try (val reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (isBlank(line)) {
+                    continue;
+                }
+                try {
+                    final ReportRepositoryModel repository = READER.readValue(line);
+                    report.getRepositories().remove(repository);
+                    report.getRepositories().add(repository);
+                    replayed++;
+                } catch (IOException e) {
+                    log.warn("Skip an incomplete record of the journal {}: {}", journalFile, e.getMessage());
+                }
+            }
+        }
+        return replayed;
+    }
+
+    // the result file is written next to the old one and moved over it, only then the journal is removed
+    public synchronized void compact(@NonNull final ReportModel report) throws IOException {
+        close();
+
+        val temporary = resultFile.resolveSibling(resultFile.getFileName() + TEMPORARY_EXTENSION);
+        try (val generator = MAPPER.createGenerator(Files.newOutputStream(temporary))) {
+            generator.writeStartObject();
+            if (report.getTicket() != null) {
+                generator.writeStringField(TICKET, report.getTicket());
+            }
+            generator.writeArrayFieldStart(REPOSITORIES);
+            for (val repository : report.getRepositories()) {
+                WRITER.writeValue(generator, repository);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        Files.move(temporary, resultFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(journalFile);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+}
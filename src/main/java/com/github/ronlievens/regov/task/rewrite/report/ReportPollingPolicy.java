@@ -0,0 +1,51 @@
+package com.github.ronlievens.regov.task.rewrite.report;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.val;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+// How often a part of a repository is polled in watch mode, based on its state. A part that can't change anymore
+// (a merged change with a successful build, a deployed environment) is never polled again.
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class ReportPollingPolicy {
+
+    private static final Duration BUILD_IN_PROGRESS = Duration.ofMinutes(1);
+    private static final Duration PULL_REQUEST_OPEN = Duration.ofMinutes(5);
+    private static final Duration DEPLOYMENT_EXPECTED = Duration.ofMinutes(5);
+    private static final Duration NO_PULL_REQUEST = Duration.ofMinutes(15);
+    private static final Duration MERGED = Duration.ofMinutes(30);
+
+    public static Optional<Duration> changeInterval(@NonNull final ReportRepositoryChangeModel change) {
+        if (change.isChangeDone()) {
+            return Optional.empty();
+        }
+        if (change.isBuildInProgress()) {
+            return Optional.of(BUILD_IN_PROGRESS);
+        }
+        if (change.isMerged()) {
+            return Optional.of(MERGED);
+        }
+        return Optional.of(change.isCommit() ? PULL_REQUEST_OPEN : NO_PULL_REQUEST);
+    }
+
+    public static Optional<Duration> environmentInterval(@NonNull final ReportRepositoryChangeModel environment, @NonNull final ReportRepositoryChangeModel change) {
+        if (environment.isDeployed()) {
+            return Optional.empty();
+        }
+        return Optional.of(change.isChangeDone() || environment.isCommit() ? DEPLOYMENT_EXPECTED : MERGED);
+    }
+
+    public static Optional<Instant> nextPoll(@NonNull final ReportRepositoryChangeModel part, @NonNull final Optional<Duration> interval) {
+        return interval.map(duration -> part.getLastChecked() != null ? part.getLastChecked().plus(duration) : Instant.EPOCH);
+    }
+
+    public static boolean isDue(@NonNull final ReportRepositoryChangeModel part, @NonNull final Optional<Duration> interval, @NonNull final Instant now) {
+        val next = nextPoll(part, interval);
+        return next.isPresent() && !next.get().isAfter(now);
+    }
+}
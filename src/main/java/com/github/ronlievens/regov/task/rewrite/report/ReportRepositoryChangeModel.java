@@ -3,6 +3,8 @@ package com.github.ronlievens.regov.task.rewrite.report;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 
+import java.time.Instant;
+
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 @ToString
@@ -26,11 +28,11 @@ public class ReportRepositoryChangeModel {
     private String buildUrl;
     private String buildStatus;
 
-    @JsonIgnore
     private String containerOriginalVersion;
-    @JsonIgnore
     private String containerNewVersion;
 
+    private Instant lastChecked;
+
     @JsonIgnore
     public String getPullRequestViewUrl() {
         if (isNotBlank(pullRequestUrl)) {
@@ -72,6 +74,22 @@ public class ReportRepositoryChangeModel {
         return "inProgress".equals(buildStatus);
     }
 
+    // everything that is reported, without the time of the last check
+    public String state() {
+        return String.join("|", String.valueOf(pullRequestId), pullRequestStatus, String.valueOf(buildId), buildStatus, containerOriginalVersion, containerNewVersion);
+    }
+
+    // a merged change with a successful build doesn't change anymore
+    @JsonIgnore
+    public boolean isChangeDone() {
+        return isMerged() && isBuildSuccess();
+    }
+
+    @JsonIgnore
+    public boolean isDeployed() {
+        return isNotBlank(containerNewVersion);
+    }
+
     @JsonIgnore
     public boolean isBuildFailed() {
         return "failed".equals(buildStatus);
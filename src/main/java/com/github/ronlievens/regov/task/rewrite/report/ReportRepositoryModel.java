@@ -1,5 +1,6 @@
 package com.github.ronlievens.regov.task.rewrite.report;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -44,8 +45,9 @@ public class ReportRepositoryModel implements Comparable<ReportRepositoryModel>
         return StringUtils.compareIgnoreCase(name, o.name);
     }
 
+    @JsonIgnore
     public boolean isDone() {
-        return change.isBuildSuccess() && isNotBlank(acceptance.getContainerNewVersion()) && isNotBlank(production.getContainerNewVersion());
+        return change != null && change.isChangeDone() && acceptance != null && acceptance.isDeployed() && production != null && production.isDeployed();
     }
 
     public static ReportRepositoryModel create(final AzureRepository azureRepository) {
@@ -71,34 +73,35 @@ public class ReportRepositoryModel implements Comparable<ReportRepositoryModel>
     }
 
     public static ReportRepositoryChangeModel map(@NonNull final String pullRequestJson, final String containerOriginalVersion, final String containerNewVersion) {
-        val result = new ReportRepositoryChangeModel();
         if (isNotBlank(pullRequestJson)) {
             try {
-                val pullRequestList = MAPPER.readValue(pullRequestJson, new TypeReference<List<Map<String, Object>>>() {
-                });
-
-                if (!pullRequestList.isEmpty()) {
-                    for (val pullRequest : pullRequestList) {
-                        if (pullRequest.get("pullRequestId") != null && pullRequest.get("pullRequestId") instanceof Integer) {
-                            result.setPullRequestId((Integer) pullRequest.get("pullRequestId"));
-                            result.setPullRequestUrl((String) pullRequest.get("url"));
-                            result.setPullRequestStatus((String) pullRequest.get("status"));
-
-                            if (isNotBlank(containerOriginalVersion)) {
-                                result.setContainerOriginalVersion(containerOriginalVersion);
-                            }
-                            if (isNotBlank(containerNewVersion)) {
-                                result.setContainerNewVersion(containerNewVersion);
-                            }
-                            break;
-                        }
-                    }
-                }
+                return map(MAPPER.readValue(pullRequestJson, new TypeReference<List<Map<String, Object>>>() {
+                }), containerOriginalVersion, containerNewVersion);
             } catch (JsonProcessingException e) {
                 log.info(pullRequestJson);
                 log.error("{}", e.getMessage());
             }
         }
+        return new ReportRepositoryChangeModel();
+    }
+
+    public static ReportRepositoryChangeModel map(@NonNull final List<Map<String, Object>> pullRequestList, final String containerOriginalVersion, final String containerNewVersion) {
+        val result = new ReportRepositoryChangeModel();
+        for (val pullRequest : pullRequestList) {
+            if (pullRequest.get("pullRequestId") != null && pullRequest.get("pullRequestId") instanceof Integer) {
+                result.setPullRequestId((Integer) pullRequest.get("pullRequestId"));
+                result.setPullRequestUrl((String) pullRequest.get("url"));
+                result.setPullRequestStatus((String) pullRequest.get("status"));
+
+                if (isNotBlank(containerOriginalVersion)) {
+                    result.setContainerOriginalVersion(containerOriginalVersion);
+                }
+                if (isNotBlank(containerNewVersion)) {
+                    result.setContainerNewVersion(containerNewVersion);
+                }
+                break;
+            }
+        }
         return result;
     }
 }
@@ -8,8 +8,11 @@ import com.github.ronlievens.regov.shell.AzureRestShell;
 import com.github.ronlievens.regov.shell.AzureShell;
 import com.github.ronlievens.regov.shell.Shell;
 import com.github.ronlievens.regov.task.config.Settings;
+import com.github.ronlievens.regov.task.config.model.AzureOrganizationArgocdSettingModel;
 import com.github.ronlievens.regov.task.rewrite.RewriteContext;
 import com.github.ronlievens.regov.task.rewrite.RewriteRunnableTask;
+import com.github.ronlievens.regov.task.rewrite.utils.ContainerVersionExtractor;
+import com.github.ronlievens.regov.task.rewrite.utils.PullRequestChangeScanner;
 import com.github.ronlievens.regov.util.LogbackUtils;
 import com.github.ronlievens.regov.util.MapperUtils;
 import lombok.NonNull;
@@ -18,21 +21,35 @@ import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.yaml.snakeyaml.Yaml;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static com.github.ronlievens.regov.task.config.Settings.properties;
 import static com.github.ronlievens.regov.task.rewrite.RewriteContext.SOURCE_COMMIT_PREFIX;
 import static com.github.ronlievens.regov.task.rewrite.report.ReportRepositoryModel.map;
-import static com.github.ronlievens.regov.task.rewrite.utils.AzureSearchUtils.getCommitsFromPullRequestList;
-import static com.github.ronlievens.regov.task.rewrite.utils.AzureSearchUtils.searchYamlUrl;
+import static com.github.ronlievens.regov.task.rewrite.utils.AzureSearchUtils.indexYamlUrls;
+import static com.github.ronlievens.regov.task.rewrite.utils.AzureSearchUtils.searchYamlUrls;
 import static com.github.ronlievens.regov.task.rewrite.utils.CsvUtils.loadSearchResultFromCsv;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
@@ -43,6 +60,7 @@ public class RewriteReportTask implements RewriteRunnableTask {
     private final static ObjectMapper MAPPER = MapperUtils.createJsonMapper(true, true);
     private final static String BUILD_PIPELINE_URL = "https://dev.azure.com/%s/%s/_build/results?buildId=%s";
     private final static String STATUS = "all";
+    private final static Duration MIN_WAIT = Duration.ofSeconds(30);
 
     private final static String PULLREQUEST_ARGO_ACCEPTANCE_POSTFIX = "%s_%s_acceptance";
     private final static String PULLREQUEST_ARGO_PRODUCTION_POSTFIX = "%s_%s_production";
@@ -77,98 +95,386 @@ public class RewriteReportTask implements RewriteRunnableTask {
                 throw new ExitException();
             }
 
-            val result = readPreviousResult(rewriteContext);
-            val pullRequestArgoList = new HashMap<String, String>();
-            val pullRequestArgoCommitsList = new HashMap<String, Map<String, String>>();
+            try (val journal = new ReportJournal(rewriteContext.getResultFile())) {
+                watch(rewriteContext, journal);
+            }
+        } catch (IOException e) {
+            log.error("{}", e.getMessage());
+            throw new ExitException();
+        }
+    }
+
+    private void watch(@NonNull final RewriteContext rewriteContext, @NonNull final ReportJournal journal) throws ExitException, IOException {
+        val result = readPreviousResult(rewriteContext, journal);
+        val scanner = new PullRequestChangeScanner(azureRestShell);
+        val buildIndex = new BuildIndex(azureRestShell);
+        val extractor = new ContainerVersionExtractor(azureRestShell);
+        var context = rewriteContext;
+        String reportedState = null;
+        while (true) {
+            // the result and the excel report are only written again when a repository was polled in this round
+            val refreshed = refresh(context, result, scanner, buildIndex, extractor, journal, Instant.now());
+            if (refreshed > 0) {
+                try {
+                    journal.compact(result);
+                } catch (IOException e) {
+                    log.error("IOException: {}", e.getMessage());
+                    throw new ExitException();
+                }
+
+                // the excel report is only written again when the state of a repository changed
+                val state = state(result);
+                if (!state.equals(reportedState)) {
+                    writeReport(rewriteContext, result);
+                    reportedState = state;
+                } else {
+                    log.info("No changes since the last report");
+                }
+            } else {
+                log.info("No repositories were polled");
+            }
+
+            if (!rewriteContext.isWatch()) {
+                break;
+            }
+            val nextPoll = nextPoll(result);
+            if (nextPoll.isEmpty()) {
+                log.info("All repositories are finished, stop watching");
+                break;
+            }
+            context = context.toBuilder().fullRefresh(false).build();
+            val wait = Math.max(MIN_WAIT.toMillis(), Duration.between(Instant.now(), nextPoll.get()).toMillis());
+            log.info("Next poll in {} seconds", TimeUnit.MILLISECONDS.toSeconds(wait));
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    // the number of repositories that were polled
+    private int refresh(@NonNull final RewriteContext rewriteContext,
+                        @NonNull final ReportModel result,
+                        @NonNull final PullRequestChangeScanner scanner,
+                        @NonNull final BuildIndex buildIndex,
+                        @NonNull final ContainerVersionExtractor extractor,
+                        @NonNull final ReportJournal journal,
+                        @NonNull final Instant now) throws ExitException {
+        val pullRequestArgoList = new ConcurrentHashMap<String, String>();
+        val pullRequestArgoCommitsList = new ConcurrentHashMap<String, Map<String, List<String>>>();
+        if (result.getRepositories().stream().anyMatch(repository -> pollEnvironment(rewriteContext, repository, repository.getAcceptance(), now)
+            || pollEnvironment(rewriteContext, repository, repository.getProduction(), now))) {
+            collectArgoPullRequests(rewriteContext, scanner, result.getTicket(), pullRequestArgoList, pullRequestArgoCommitsList);
+        }
+
+        if (rewriteContext.getRepositories() == null) {
+            return 0;
+        }
+        return collectReport(rewriteContext, result, pullRequestArgoList, pullRequestArgoCommitsList, buildIndex, extractor, journal, now);
+    }
+
+    private void writeReport(@NonNull final RewriteContext rewriteContext, @NonNull final ReportModel result) {
+        var filename = FilenameUtils.removeExtension(rewriteContext.getResultFile().toString());
+        ExcelReportUtil.createExcelReport(Settings.properties().getTicketUrl(), Path.of(filename + ".xlsx"), result);
+    }
+
+    private static String state(@NonNull final ReportModel result) {
+        val state = new StringBuilder();
+        for (val repository : result.getRepositories()) {
+            state.append(repository.getName()).append('|')
+                .append(repository.getChange().state()).append('|')
+                .append(repository.getAcceptance().state()).append('|')
+                .append(repository.getProduction().state()).append('\n');
+        }
+        return state.toString();
+    }
+
+    private static Optional<Instant> nextPoll(@NonNull final ReportModel result) {
+        return result.getRepositories().stream()
+            .flatMap(repository -> Stream.of(
+                ReportPollingPolicy.nextPoll(repository.getChange(), ReportPollingPolicy.changeInterval(repository.getChange())),
+                ReportPollingPolicy.nextPoll(repository.getAcceptance(), ReportPollingPolicy.environmentInterval(repository.getAcceptance(), repository.getChange())),
+                ReportPollingPolicy.nextPoll(repository.getProduction(), ReportPollingPolicy.environmentInterval(repository.getProduction(), repository.getChange()))))
+            .flatMap(Optional::stream)
+            .min(Comparator.naturalOrder());
+    }
+
+    // a single run polls every part that can still change, in watch mode a part is only polled when its interval passed
+    private static boolean pollChange(@NonNull final RewriteContext rewriteContext, @NonNull final ReportRepositoryModel repository, @NonNull final Instant now) {
+        if (rewriteContext.isFullRefresh()) {
+            return true;
+        }
+        val interval = ReportPollingPolicy.changeInterval(repository.getChange());
+        return rewriteContext.isWatch() ? ReportPollingPolicy.isDue(repository.getChange(), interval, now) : interval.isPresent();
+    }
+
+    private static boolean pollEnvironment(@NonNull final RewriteContext rewriteContext,
+                                           @NonNull final ReportRepositoryModel repository,
+                                           @NonNull final ReportRepositoryChangeModel environment,
+                                           @NonNull final Instant now) {
+        if (rewriteContext.isFullRefresh()) {
+            return true;
+        }
+        val interval = ReportPollingPolicy.environmentInterval(environment, repository.getChange());
+        return rewriteContext.isWatch() ? ReportPollingPolicy.isDue(environment, interval, now) : interval.isPresent();
+    }
+
+    // the ArgoCD pull requests of the projects are listed and scanned in parallel, the scanner shares the changes of the
+    // pull requests that are listed for more than one project
+    private void collectArgoPullRequests(@NonNull final RewriteContext rewriteContext,
+                                         @NonNull final PullRequestChangeScanner scanner,
+                                         @NonNull final String ticket,
+                                         @NonNull final Map<String, String> pullRequestArgoList,
+                                         @NonNull final Map<String, Map<String, List<String>>> pullRequestArgoCommitsList) throws ExitException {
+        val executor = Executors.newFixedThreadPool(Math.max(1, rewriteContext.getWorkers()));
+        try {
+            val futures = new ArrayList<CompletableFuture<Void>>();
             for (val organizationEntrySet : Settings.properties().getAzure().getOrganizations().entrySet()) {
+                val argocd = organizationEntrySet.getValue().getArgocd();
                 for (val project : organizationEntrySet.getValue().getProjects()) {
-                    val pullRequestArgoAcceptance = azureShell.listPullRequest(organizationEntrySet.getKey(),
-                        project,
-                        organizationEntrySet.getValue().getArgocd().getAcceptance().getRepository(),
-                        organizationEntrySet.getValue().getArgocd().getAcceptance().getSourceBranch().formatted(result.getTicket()),
-                        organizationEntrySet.getValue().getArgocd().getAcceptance().getTargetBranch(),
-                        STATUS,
-                        rewriteContext.isTrace());
-
-                    val pullRequestArgoProduction = azureShell.listPullRequest(organizationEntrySet.getKey(),
-                        project,
-                        organizationEntrySet.getValue().getArgocd().getProduction().getRepository(),
-                        organizationEntrySet.getValue().getArgocd().getProduction().getSourceBranch().formatted(result.getTicket()),
-                        organizationEntrySet.getValue().getArgocd().getProduction().getTargetBranch(),
-                        STATUS,
-                        rewriteContext.isTrace());
-
-                    val acceptanceKey = PULLREQUEST_ARGO_ACCEPTANCE_POSTFIX.formatted(organizationEntrySet.getKey(), project);
-                    pullRequestArgoList.put(acceptanceKey, pullRequestArgoAcceptance);
-                    pullRequestArgoCommitsList.put(acceptanceKey, getCommitsFromPullRequestList(azureRestShell, pullRequestArgoAcceptance, rewriteContext.isTrace()));
-
-                    val productionKey = PULLREQUEST_ARGO_PRODUCTION_POSTFIX.formatted(organizationEntrySet.getKey(), project);
-                    pullRequestArgoList.put(productionKey, pullRequestArgoAcceptance);
-                    pullRequestArgoCommitsList.put(acceptanceKey, getCommitsFromPullRequestList(azureRestShell, pullRequestArgoProduction, rewriteContext.isTrace()));
+                    futures.add(CompletableFuture.runAsync(() -> collectArgoPullRequest(rewriteContext, scanner, organizationEntrySet.getKey(), project, argocd.getAcceptance(), ticket,
+                        PULLREQUEST_ARGO_ACCEPTANCE_POSTFIX.formatted(organizationEntrySet.getKey(), project), pullRequestArgoList, pullRequestArgoCommitsList), executor));
+                    futures.add(CompletableFuture.runAsync(() -> collectArgoPullRequest(rewriteContext, scanner, organizationEntrySet.getKey(), project, argocd.getProduction(), ticket,
+                        PULLREQUEST_ARGO_PRODUCTION_POSTFIX.formatted(organizationEntrySet.getKey(), project), pullRequestArgoList, pullRequestArgoCommitsList), executor));
                 }
             }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            log.error("Unable to collect the ArgoCD pull requests: {}", e.getCause().getMessage(), e.getCause());
+            throw new ExitException();
+        } finally {
+            executor.shutdown();
+        }
+    }
 
-            if (rewriteContext.getRepositories() != null) {
-                var count = 1;
-                for (val repository : result.getRepositories()) {
-                    log.info("Reporting on repository {} [{}/{}] ", repository.getName(), count, rewriteContext.getRepositories().size());
-
-                    if (repository.getChange().getBuildStatus() == null || (repository.getChange().isCommit() && !repository.getChange().isMerged())) {
-                        val pullRequest = azureShell.listPullRequest(repository.getOrganizationName(),
-                            repository.getProjectName(),
-                            repository.getName(),
-                            rewriteContext.getBranchName(),
-                            properties().getGit().getGitBranchMain(),
-                            STATUS,
-                            rewriteContext.isTrace());
-                        if (pullRequest != null) {
-                            repository.setChange(map(pullRequest));
-                        }
-                    }
+    private void collectArgoPullRequest(@NonNull final RewriteContext rewriteContext,
+                                        @NonNull final PullRequestChangeScanner scanner,
+                                        @NonNull final String organization,
+                                        @NonNull final String project,
+                                        @NonNull final AzureOrganizationArgocdSettingModel environment,
+                                        @NonNull final String ticket,
+                                        @NonNull final String key,
+                                        @NonNull final Map<String, String> pullRequestArgoList,
+                                        @NonNull final Map<String, Map<String, List<String>>> pullRequestArgoCommitsList) {
+        val pullRequestArgo = azureShell.listPullRequest(organization,
+            project,
+            environment.getRepository(),
+            environment.getSourceBranch().formatted(ticket),
+            environment.getTargetBranch(),
+            STATUS,
+            rewriteContext.isTrace());
+        if (pullRequestArgo != null) {
+            pullRequestArgoList.put(key, pullRequestArgo);
+        }
+        try {
+            pullRequestArgoCommitsList.put(key, indexYamlUrls(scanner.scan(pullRequestArgo, rewriteContext.isTrace())));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-                    lookupRun(repository.getOrganizationName(), repository.getProjectId(), repository.getName(), result.getTicket(), rewriteContext.isTrace(), repository.getChange());
+    // the pull request and build, the acceptance and the production state of a repository are independent, every part
+    // is a separate task on a bounded pool and only updates its own part of the repository
+    private int collectReport(@NonNull final RewriteContext rewriteContext,
+                              @NonNull final ReportModel result,
+                              @NonNull final Map<String, String> pullRequestArgoList,
+                              @NonNull final Map<String, Map<String, List<String>>> pullRequestArgoCommitsList,
+                              @NonNull final BuildIndex buildIndex,
+                              @NonNull final ContainerVersionExtractor extractor,
+                              @NonNull final ReportJournal journal,
+                              @NonNull final Instant now) throws ExitException {
+        val pullRequestIndex = indexPullRequests(rewriteContext, result, now);
+        refreshBuildIndex(rewriteContext, result, buildIndex, now);
+        val executor = Executors.newFixedThreadPool(Math.max(1, rewriteContext.getWorkers()));
+        val count = new AtomicInteger();
+        var skipped = 0;
+        try {
+            val futures = new ArrayList<CompletableFuture<Void>>();
+            for (val repository : result.getRepositories()) {
+                // without a full refresh only the parts that can still change are polled again
+                if (!rewriteContext.isFullRefresh() && repository.isDone()) {
+                    skipped++;
+                    continue;
+                }
 
-                    val acceptanceKey = PULLREQUEST_ARGO_ACCEPTANCE_POSTFIX.formatted(repository.getOrganizationName(), repository.getProjectName());
-                    var containerNewVersionUrl = searchYamlUrl(pullRequestArgoCommitsList.get(acceptanceKey), repository.getName());
-                    if (isNotBlank(containerNewVersionUrl)) {
-                        var containerOriginalVersionUrl = containerNewVersionUrl.substring(0, containerNewVersionUrl.lastIndexOf("?")) + "?versionOptions=firstParent";
-                        repository.setAcceptance(map(pullRequestArgoList.get(acceptanceKey), searchYamlContainerVersion(containerOriginalVersionUrl, rewriteContext.isTrace()), searchYamlContainerVersion(containerNewVersionUrl, rewriteContext.isTrace())));
-                    }
+                val acceptanceKey = PULLREQUEST_ARGO_ACCEPTANCE_POSTFIX.formatted(repository.getOrganizationName(), repository.getProjectName());
+                val productionKey = PULLREQUEST_ARGO_PRODUCTION_POSTFIX.formatted(repository.getOrganizationName(), repository.getProjectName());
+                val parts = new ArrayList<CompletableFuture<Void>>();
+                if (pollChange(rewriteContext, repository, now)) {
+                    parts.add(CompletableFuture.runAsync(() -> reportChange(rewriteContext, result.getTicket(), repository, pullRequestIndex.get(repository.getProjectId()), buildIndex), executor)
+                        .thenRun(() -> repository.getChange().setLastChecked(Instant.now())));
+                }
+                if (pollEnvironment(rewriteContext, repository, repository.getAcceptance(), now)) {
+                    parts.add(CompletableFuture.runAsync(() -> reportEnvironment(pullRequestArgoList.get(acceptanceKey), pullRequestArgoCommitsList.get(acceptanceKey), repository.getName(), repository::setAcceptance, extractor, rewriteContext.isTrace()), executor)
+                        .thenRun(() -> repository.getAcceptance().setLastChecked(Instant.now())));
+                }
+                if (pollEnvironment(rewriteContext, repository, repository.getProduction(), now)) {
+                    parts.add(CompletableFuture.runAsync(() -> reportEnvironment(pullRequestArgoList.get(productionKey), pullRequestArgoCommitsList.get(productionKey), repository.getName(), repository::setProduction, extractor, rewriteContext.isTrace()), executor)
+                        .thenRun(() -> repository.getProduction().setLastChecked(Instant.now())));
+                }
+                if (parts.isEmpty()) {
+                    continue;
+                }
+                futures.add(CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new))
+                    .thenRun(() -> {
+                        journal.append(repository);
+                        log.info("Reported on repository {} [{}/{}] ", repository.getName(), count.incrementAndGet(), result.getRepositories().size());
+                    }));
+            }
+            if (skipped > 0) {
+                log.info("Skipped {} finished repositories, use --full-refresh to report on them again", skipped);
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+            return count.get();
+        } catch (CompletionException e) {
+            log.error("Unable to report on the repositories: {}", e.getCause().getMessage(), e.getCause());
+            throw new ExitException();
+        } finally {
+            executor.shutdown();
+        }
+    }
 
-                    val productionKey = PULLREQUEST_ARGO_PRODUCTION_POSTFIX.formatted(repository.getOrganizationName(), repository.getProjectName());
-                    containerNewVersionUrl = searchYamlUrl(pullRequestArgoCommitsList.get(productionKey), repository.getName());
-                    if (isNotBlank(containerNewVersionUrl)) {
-                        var containerOriginalVersionUrl = containerNewVersionUrl.substring(0, containerNewVersionUrl.lastIndexOf("?")) + "?versionOptions=firstParent";
-                        repository.setProduction(map(pullRequestArgoList.get(productionKey), searchYamlContainerVersion(containerOriginalVersionUrl, rewriteContext.isTrace()), searchYamlContainerVersion(containerNewVersionUrl, rewriteContext.isTrace())));
-                    }
+    // the pull requests of the autorewrite branch are fetched once per project and indexed by repository id, a project
+    // that can't be queried is left out and its repositories fall back on a pull request query per repository
+    private Map<UUID, Map<UUID, List<Map<String, Object>>>> indexPullRequests(@NonNull final RewriteContext rewriteContext, @NonNull final ReportModel result, @NonNull final Instant now) {
+        val projects = new HashMap<UUID, ReportRepositoryModel>();
+        for (val repository : result.getRepositories()) {
+            if (pollChange(rewriteContext, repository, now)
+                && (repository.getChange().getBuildStatus() == null || (repository.getChange().isCommit() && !repository.getChange().isMerged()))) {
+                projects.putIfAbsent(repository.getProjectId(), repository);
+            }
+        }
 
-                    count++;
+        val index = new HashMap<UUID, Map<UUID, List<Map<String, Object>>>>();
+        for (val project : projects.values()) {
+            try {
+                val pullRequests = azureRestShell.listPullRequests(project.getOrganizationName(),
+                    project.getProjectName(),
+                    rewriteContext.getBranchName(),
+                    properties().getGit().getGitBranchMain(),
+                    STATUS,
+                    rewriteContext.isTrace());
+                val repositories = new HashMap<UUID, List<Map<String, Object>>>();
+                for (val pullRequest : pullRequests) {
+                    if (pullRequest.get("repository") instanceof Map<?, ?> repository && repository.get("id") instanceof String id) {
+                        repositories.computeIfAbsent(UUID.fromString(id), key -> new ArrayList<>()).add(pullRequest);
+                    }
                 }
+                log.info("Found {} pull requests for branch {} in project {}", pullRequests.size(), rewriteContext.getBranchName(), project.getProjectName());
+                index.put(project.getProjectId(), repositories);
+            } catch (RuntimeException e) {
+                log.warn("Unable to list the pull requests of project {}: {}", project.getProjectName(), e.getMessage());
+            }
+        }
+        return index;
+    }
+
+    private void reportChange(@NonNull final RewriteContext rewriteContext,
+                              @NonNull final String ticket,
+                              @NonNull final ReportRepositoryModel repository,
+                              final Map<UUID, List<Map<String, Object>>> pullRequestIndex,
+                              @NonNull final BuildIndex buildIndex) {
+        if (repository.getChange().getBuildStatus() == null || (repository.getChange().isCommit() && !repository.getChange().isMerged())) {
+            if (pullRequestIndex != null) {
+                repository.setChange(map(pullRequestIndex.getOrDefault(repository.getId(), List.of()), null, null));
+            } else {
+                pullRequestFromRepository(rewriteContext, repository);
             }
+        }
 
-            var filename = FilenameUtils.removeExtension(rewriteContext.getResultFile().toString());
-            ExcelReportUtil.createExcelReport(Settings.properties().getTicketUrl(), Path.of(filename + ".xlsx"), result);
+        if (buildIndex.isIndexed(repository.getProjectId())) {
+            val pipeline = Settings.properties().getAzure().getOrganization(repository.getOrganizationName()).getPipeline();
+            buildIndex.find(repository.getProjectId(), pipeline.getPath(), repository.getName(), SOURCE_COMMIT_PREFIX.formatted(ticket)).ifPresent(build -> {
+                repository.getChange().setBuildId(build.id());
+                repository.getChange().setBuildUrl(BUILD_PIPELINE_URL.formatted(repository.getOrganizationName(), repository.getProjectId(), build.id()));
+                repository.getChange().setBuildStatus(build.buildStatus());
+            });
+        } else {
+            lookupRun(repository.getOrganizationName(), repository.getProjectId(), repository.getName(), ticket, rewriteContext.isTrace(), repository.getChange());
+        }
+    }
 
-            try {
-                Files.writeString(rewriteContext.getResultFile(), MAPPER.writeValueAsString(result));
-            } catch (IOException e) {
-                log.error("IOException: {}", e.getMessage());
-                throw new ExitException();
+    private void refreshBuildIndex(@NonNull final RewriteContext rewriteContext, @NonNull final ReportModel result, @NonNull final BuildIndex buildIndex, @NonNull final Instant now) {
+        val projects = new HashMap<UUID, String>();
+        for (val repository : result.getRepositories()) {
+            if (pollChange(rewriteContext, repository, now)) {
+                projects.putIfAbsent(repository.getProjectId(), repository.getOrganizationName());
             }
-        } catch (IOException e) {
-            log.error("{}", e.getMessage());
-            throw new ExitException();
+        }
+        for (val project : projects.entrySet()) {
+            val pipeline = Settings.properties().getAzure().getOrganization(project.getValue()).getPipeline();
+            buildIndex.refresh(project.getValue(), project.getKey(), pipeline.getBranch(), rewriteContext.isTrace());
         }
     }
 
-    private ReportModel readPreviousResult(final RewriteContext rewriteContext) throws IOException {
-        if (rewriteContext.getResultFile() != null && Files.exists(rewriteContext.getResultFile())) {
-            return MAPPER.readValue(Files.readString(rewriteContext.getResultFile()), ReportModel.class);
+    private void pullRequestFromRepository(@NonNull final RewriteContext rewriteContext, @NonNull final ReportRepositoryModel repository) {
+        val pullRequest = azureShell.listPullRequest(repository.getOrganizationName(),
+            repository.getProjectName(),
+            repository.getName(),
+            rewriteContext.getBranchName(),
+            properties().getGit().getGitBranchMain(),
+            STATUS,
+            rewriteContext.isTrace());
+        if (pullRequest != null) {
+            repository.setChange(map(pullRequest));
         }
-        val report = new ReportModel();
-        report.setTicket(rewriteContext.getTicket());
-        for (val repository : rewriteContext.getRepositories()) {
-            report.getRepositories().add(ReportRepositoryModel.create(repository));
+    }
+
+    // with more than one values file (like one per region) the distinct container versions are joined
+    private void reportEnvironment(final String pullRequestArgo,
+                                   final Map<String, List<String>> pullRequestArgoCommits,
+                                   @NonNull final String name,
+                                   @NonNull final Consumer<ReportRepositoryChangeModel> environment,
+                                   @NonNull final ContainerVersionExtractor extractor,
+                                   final boolean trace) {
+        val containerNewVersionUrls = searchYamlUrls(pullRequestArgoCommits, name);
+        if (!containerNewVersionUrls.isEmpty()) {
+            val containerOriginalVersions = new LinkedHashSet<String>();
+            val containerNewVersions = new LinkedHashSet<String>();
+            for (val containerNewVersionUrl : containerNewVersionUrls) {
+                val containerOriginalVersionUrl = containerNewVersionUrl.substring(0, containerNewVersionUrl.lastIndexOf("?")) + "?versionOptions=firstParent";
+                addVersion(containerOriginalVersions, extractor.searchContainerVersion(containerOriginalVersionUrl, trace));
+                addVersion(containerNewVersions, extractor.searchContainerVersion(containerNewVersionUrl, trace));
+            }
+            environment.accept(map(pullRequestArgo, String.join(", ", containerOriginalVersions), String.join(", ", containerNewVersions)));
+        }
+    }
+
+    private static void addVersion(@NonNull final Set<String> versions, final String version) {
+        if (isNotBlank(version)) {
+            versions.add(version);
+        }
+    }
+
+    private ReportModel readPreviousResult(@NonNull final RewriteContext rewriteContext, @NonNull final ReportJournal journal) throws IOException {
+        val previous = journal.readResult();
+        val report = previous.orElseGet(ReportModel::new);
+        if (previous.isEmpty()) {
+            report.setTicket(rewriteContext.getTicket());
+            for (val repository : rewriteContext.getRepositories()) {
+                report.getRepositories().add(ReportRepositoryModel.create(repository));
+            }
+        }
+
+        // the journal is only left behind by a report that was interrupted
+        val replayed = journal.replay(report);
+        if (replayed > 0) {
+            log.info("Recovered {} reported repositories from the journal", replayed);
+        }
+
+        // empty parts are not written, so they are missing in the previous result
+        for (val repository : report.getRepositories()) {
+            if (repository.getChange() == null) {
+                repository.setChange(new ReportRepositoryChangeModel());
+            }
+            if (repository.getAcceptance() == null) {
+                repository.setAcceptance(new ReportRepositoryChangeModel());
+            }
+            if (repository.getProduction() == null) {
+                repository.setProduction(new ReportRepositoryChangeModel());
+            }
         }
         return report;
     }
@@ -212,24 +518,4 @@ public class RewriteReportTask implements RewriteRunnableTask {
             }
         }
     }
-
-    private String searchYamlContainerVersion(final String url, final boolean trace) {
-        try {
-            val yaml = azureRestShell.call(url, trace);
-
-            val yamlMapper = new Yaml();
-            Map<String, Object> container = yamlMapper.load(yaml);
-
-            if (container != null && !container.isEmpty() && container.containsKey("image") && container.get("image") instanceof Map) {
-                val containerImage = (Map<String, String>) container.get("image");
-                return containerImage.get("repository") + ": " + containerImage.get("tag");
-            }
-
-        } catch (Exception e) {
-            log.warn("Unable to retrieve container version for: {}", url);
-            log.trace("Unable to retrieve container version for: {}", url, e);
-        }
-
-        return null;
-    }
 }
@@ -0,0 +1,191 @@
+package com.github.ronlievens.regov.task.rewrite.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ronlievens.regov.shell.AzureRestShell;
+import com.github.ronlievens.regov.util.MapperUtils;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.MappingEndEvent;
+import org.yaml.snakeyaml.events.MappingStartEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.events.SequenceEndEvent;
+import org.yaml.snakeyaml.events.SequenceStartEvent;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.github.ronlievens.regov.task.config.Settings.properties;
+import static com.github.ronlievens.regov.util.CacheUtils.getCacheDirectory;
+
+// The container image (repository and tag) of the ArgoCD values files. The git object id of a file version is resolved
+// first, the image of an object id never changes, so it is cached and the file is only downloaded for a new object id.
+@Slf4j
+public class ContainerVersionExtractor {
+
+    private static final ObjectMapper MAPPER = MapperUtils.createJsonMapper(true, false);
+    private static final String CACHE_NAME = "container-versions";
+    private static final String CACHE_FILE = "%s.json";
+    // the $ of the format parameters is encoded, so the shell doesn't expand it
+    private static final String METADATA_PARAMETER = "%24format=json";
+    private static final String BLOB_URL = "%s/blobs/%s?%%24format=text&%s";
+    private static final String ITEMS_PATH = "/items";
+    private static final String COMMIT_VERSION = "versionType=Commit";
+
+    private final AzureRestShell azureRestShell;
+    private final Path cacheDirectory;
+    private final Map<String, String> objectIds;
+    private final Map<String, ContainerImage> images;
+
+    public record ContainerImage(
+        String repository,
+        String tag
+    ) {
+
+        static final ContainerImage NONE = new ContainerImage(null, null);
+
+        public String version() {
+            return repository == null && tag == null ? null : "%s: %s".formatted(repository, tag);
+        }
+    }
+
+    public ContainerVersionExtractor(@NonNull final AzureRestShell azureRestShell) {
+        this(azureRestShell, getCacheDirectory(CACHE_NAME));
+    }
+
+    public ContainerVersionExtractor(@NonNull final AzureRestShell azureRestShell, @NonNull final Path cacheDirectory) {
+        this.azureRestShell = azureRestShell;
+        this.cacheDirectory = cacheDirectory;
+        this.objectIds = new ConcurrentHashMap<>();
+        this.images = new ConcurrentHashMap<>();
+    }
+
+    public String searchContainerVersion(final String url, final boolean trace) {
+        try {
+            val objectId = objectId(url, trace);
+            if (objectId == null) {
+                return null;
+            }
+            return images.computeIfAbsent(objectId, id -> loadImage(url, id, trace)).version();
+        } catch (Exception e) {
+            log.warn("Unable to retrieve container version for: {}", url);
+            log.trace("Unable to retrieve container version for: {}", url, e);
+        }
+        return null;
+    }
+
+    // a version pinned on a commit always points to the same object, the other versions (like firstParent) can move
+    private String objectId(@NonNull final String url, final boolean trace) throws IOException {
+        val known = objectIds.get(url);
+        if (known != null) {
+            return known;
+        }
+
+        val metadata = MAPPER.readValue(azureRestShell.call(url + (url.contains("?") ? "&" : "?") + METADATA_PARAMETER, trace), Map.class);
+        if (!(metadata.get("objectId") instanceof String objectId)) {
+            return null;
+        }
+        if (url.contains(COMMIT_VERSION)) {
+            objectIds.put(url, objectId);
+        }
+        return objectId;
+    }
+
+    private ContainerImage loadImage(@NonNull final String url, @NonNull final String objectId, final boolean trace) {
+        val cacheFile = cacheDirectory.resolve(CACHE_FILE.formatted(objectId));
+        if (Files.exists(cacheFile)) {
+            try {
+                return MAPPER.readValue(cacheFile.toFile(), ContainerImage.class);
+            } catch (IOException e) {
+                log.debug("Unable to read cached container image {}: {}", cacheFile, e.getMessage());
+            }
+        }
+
+        val repositoryUrl = url.substring(0, url.indexOf(ITEMS_PATH));
+        val yaml = azureRestShell.call(BLOB_URL.formatted(repositoryUrl, objectId, properties().getAzure().getApiParameter()), trace);
+        val image = extract(new StringReader(yaml));
+        try {
+            MAPPER.writeValue(cacheFile.toFile(), image);
+        } catch (IOException e) {
+            log.debug("Unable to cache container image {}: {}", cacheFile, e.getMessage());
+        }
+        return image;
+    }
+
+    // the yaml is read as events and only up to the image mapping, the rest of the values file is never parsed
+    static ContainerImage extract(@NonNull final Reader reader) {
+        val events = new Yaml().parse(reader).iterator();
+        while (events.hasNext()) {
+            val event = events.next();
+            if (event instanceof MappingStartEvent) {
+                return findImage(events);
+            }
+            if (event instanceof SequenceStartEvent || event instanceof ScalarEvent) {
+                return ContainerImage.NONE;
+            }
+        }
+        return ContainerImage.NONE;
+    }
+
+    private static ContainerImage findImage(@NonNull final Iterator<Event> events) {
+        while (events.hasNext()) {
+            val key = events.next();
+            if (key instanceof MappingEndEvent) {
+                break;
+            }
+            if (key instanceof ScalarEvent scalar && "image".equals(scalar.getValue())) {
+                return events.next() instanceof MappingStartEvent ? readImage(events) : ContainerImage.NONE;
+            }
+            skip(key, events);
+            skip(events.next(), events);
+        }
+        return ContainerImage.NONE;
+    }
+
+    private static ContainerImage readImage(@NonNull final Iterator<Event> events) {
+        String repository = null;
+        String tag = null;
+        while (events.hasNext()) {
+            val key = events.next();
+            if (key instanceof MappingEndEvent) {
+                break;
+            }
+            skip(key, events);
+            val value = events.next();
+            if (key instanceof ScalarEvent scalar && value instanceof ScalarEvent scalarValue) {
+                if ("repository".equals(scalar.getValue())) {
+                    repository = scalarValue.getValue();
+                } else if ("tag".equals(scalar.getValue())) {
+                    tag = scalarValue.getValue();
+                }
+            } else {
+                skip(value, events);
+            }
+        }
+        return new ContainerImage(repository, tag);
+    }
+
+    // skips the rest of a nested mapping or sequence, a scalar or alias is a single event
+    private static void skip(@NonNull final Event start, @NonNull final Iterator<Event> events) {
+        if (!(start instanceof MappingStartEvent) && !(start instanceof SequenceStartEvent)) {
+            return;
+        }
+        var depth = 1;
+        while (depth > 0 && events.hasNext()) {
+            val event = events.next();
+            if (event instanceof MappingStartEvent || event instanceof SequenceStartEvent) {
+                depth++;
+            } else if (event instanceof MappingEndEvent || event instanceof SequenceEndEvent) {
+                depth--;
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.github.ronlievens.regov.task.rewrite.utils;
+
+// maxCycles is the upper bound of recipe cycles, with converge the later cycles only run the recipes on the files
+// that changed in the previous cycle
+public record CyclePolicy(
+    int maxCycles,
+    boolean converge
+) {
+
+    public static final int DEFAULT_MAX_CYCLES = 3;
+    public static final CyclePolicy DEFAULT = new CyclePolicy(DEFAULT_MAX_CYCLES, false);
+}
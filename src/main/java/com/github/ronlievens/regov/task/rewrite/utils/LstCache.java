@@ -0,0 +1,63 @@
+package com.github.ronlievens.regov.task.rewrite.utils;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.openrewrite.SourceFile;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.github.ronlievens.regov.util.CacheUtils.sha256;
+
+// The parsed source trees of the repositories that are being processed, by commit id and parser configuration. The
+// trees are only kept in memory, so the campaigns of a repository share a single parse, and are released as soon as
+// the repository is finished. Nothing is stored on disk, a new run always parses again.
+@Slf4j
+public class LstCache {
+
+    private final Map<Path, CachedTrees> trees = new ConcurrentHashMap<>();
+
+    private record CachedTrees(
+        String key,
+        List<SourceFile> sourceFiles
+    ) {
+    }
+
+    public static String key(@NonNull final String commitId, @NonNull final String parserConfiguration) {
+        return sha256(commitId + "\n" + parserConfiguration);
+    }
+
+    // the cached trees are only used when they cover exactly the files that would be parsed
+    public Optional<List<SourceFile>> load(@NonNull final Path root, @NonNull final String key, @NonNull final Set<Path> sourcePaths) {
+        val cached = trees.get(normalize(root));
+        if (cached != null && cached.key().equals(key) && sourcePaths.equals(paths(cached.sourceFiles()))) {
+            log.info("Reuse {} parsed source files from memory", cached.sourceFiles().size());
+            return Optional.of(cached.sourceFiles());
+        }
+        return Optional.empty();
+    }
+
+    public void store(@NonNull final Path root, @NonNull final String key, @NonNull final List<SourceFile> sourceFiles) {
+        trees.put(normalize(root), new CachedTrees(key, sourceFiles));
+    }
+
+    public void release(@NonNull final Path root) {
+        trees.remove(normalize(root));
+    }
+
+    private static Path normalize(@NonNull final Path root) {
+        return root.toAbsolutePath().normalize();
+    }
+
+    private static Set<Path> paths(@NonNull final List<SourceFile> sourceFiles) {
+        val paths = new HashSet<Path>();
+        sourceFiles.forEach(sourceFile -> paths.add(sourceFile.getSourcePath()));
+        return paths;
+    }
+}
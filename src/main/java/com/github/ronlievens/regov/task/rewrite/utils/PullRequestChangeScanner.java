@@ -0,0 +1,174 @@
+package com.github.ronlievens.regov.task.rewrite.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ronlievens.regov.shell.AzureRestShell;
+import com.github.ronlievens.regov.shell.model.AzureListWrapper;
+import com.github.ronlievens.regov.util.MapperUtils;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.github.ronlievens.regov.task.config.Settings.properties;
+import static com.github.ronlievens.regov.util.CacheUtils.getCacheDirectory;
+import static com.github.ronlievens.regov.util.CacheUtils.sha256;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+// The changed files of pull requests (path to item url). Only the latest iteration is read, its change set against the
+// target covers all the commits of the pull request. The changes of a pull request are cached by its last merge commits,
+// which never change for the same state of the pull request, and concurrent calls of the same url share one request.
+@Slf4j
+public class PullRequestChangeScanner {
+
+    private static final ObjectMapper MAPPER = MapperUtils.createJsonMapper(true, true);
+    private static final String CACHE_NAME = "pull-request-changes";
+    private static final String CACHE_FILE = "%s.json";
+    private static final String ITERATIONS_URL = "%s/pullRequests/%s/iterations?%s";
+    // the $ of the paging parameters is encoded, so the shell doesn't expand it
+    private static final String CHANGES_URL = "%s/pullRequests/%s/iterations/%s/changes?%%24compareTo=0&%%24top=%d&%%24skip=%d&%s";
+    private static final String ITEM_URL = "%s/items%s?versionType=Commit&version=%s";
+    private static final int PAGE_SIZE = 2000;
+
+    private final AzureRestShell azureRestShell;
+    private final Path cacheDirectory;
+    private final Map<String, CompletableFuture<String>> calls;
+    private final Map<String, Map<String, String>> changes;
+    private final Map<String, Map<String, String>> scans;
+
+    public PullRequestChangeScanner(@NonNull final AzureRestShell azureRestShell) {
+        this(azureRestShell, getCacheDirectory(CACHE_NAME));
+    }
+
+    public PullRequestChangeScanner(@NonNull final AzureRestShell azureRestShell, @NonNull final Path cacheDirectory) {
+        this.azureRestShell = azureRestShell;
+        this.cacheDirectory = cacheDirectory;
+        this.calls = new ConcurrentHashMap<>();
+        this.changes = new ConcurrentHashMap<>();
+        this.scans = new ConcurrentHashMap<>();
+    }
+
+    // the same pull request list (the ArgoCD repository is listed for every project) is only scanned once
+    public Map<String, String> scan(final String prList, final boolean trace) throws JsonProcessingException {
+        if (isNotBlank(prList) && scans.containsKey(prList)) {
+            return scans.get(prList);
+        }
+
+        val resultSet = new HashMap<String, String>();
+        if (isNotBlank(prList)) {
+            val azurePrList = MAPPER.readValue(prList, new TypeReference<List<Map<String, Object>>>() {
+            });
+            if (azurePrList != null) {
+                for (val azurePrItem : azurePrList) {
+                    resultSet.putAll(scanPullRequest(azurePrItem, trace));
+                }
+            }
+            scans.put(prList, resultSet);
+        }
+        return resultSet;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, String> scanPullRequest(@NonNull final Map<String, Object> pullRequest, final boolean trace) throws JsonProcessingException {
+        if (!(pullRequest.get("pullRequestId") instanceof Integer id)
+            || !(pullRequest.get("repository") instanceof Map<?, ?> repository)
+            || !(repository.get("url") instanceof String repositoryUrl)) {
+            return Map.of();
+        }
+
+        // the last merge commits identify the state of the pull request, an unchanged pull request is not read again
+        val sourceCommitId = commitId(pullRequest.get("lastMergeSourceCommit"));
+        val key = sourceCommitId != null ? sha256("%s\n%s\n%s\n%s".formatted(repositoryUrl, id, sourceCommitId, commitId(pullRequest.get("lastMergeTargetCommit")))) : null;
+        val cacheFile = key != null ? cacheDirectory.resolve(CACHE_FILE.formatted(key)) : null;
+        if (key != null) {
+            val cached = changes.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            if (Files.exists(cacheFile)) {
+                try {
+                    final Map<String, String> stored = MAPPER.readValue(cacheFile.toFile(), new TypeReference<>() {
+                    });
+                    changes.put(key, stored);
+                    return stored;
+                } catch (IOException e) {
+                    log.debug("Unable to read cached changes {}: {}", cacheFile, e.getMessage());
+                }
+            }
+        }
+
+        final AzureListWrapper<Map<String, Object>> iterations = MAPPER.readValue(call(ITERATIONS_URL.formatted(repositoryUrl, id, properties().getAzure().getApiParameter()), trace), new TypeReference<>() {
+        });
+        val latest = iterations.getValue() == null ? null : iterations.getValue().stream()
+            .filter(iteration -> iteration.get("id") instanceof Integer)
+            .max(Comparator.comparingInt(iteration -> (Integer) iteration.get("id")))
+            .orElse(null);
+        val commitId = latest != null ? commitId(latest.get("sourceRefCommit")) : null;
+        if (commitId == null) {
+            return Map.of();
+        }
+
+        val resultSet = new HashMap<String, String>();
+        var skip = 0;
+        while (true) {
+            final Map<String, Object> page = MAPPER.readValue(call(CHANGES_URL.formatted(repositoryUrl, id, latest.get("id"), PAGE_SIZE, skip, properties().getAzure().getApiParameter()), trace), new TypeReference<>() {
+            });
+            if (page.get("changeEntries") instanceof List<?> entries) {
+                for (val entry : (List<Map<String, Object>>) entries) {
+                    if (entry.get("item") instanceof Map<?, ?> item && item.get("path") instanceof String path
+                        && !Boolean.TRUE.equals(item.get("isFolder"))
+                        && !String.valueOf(entry.get("changeType")).contains("delete")) {
+                        resultSet.put(path, ITEM_URL.formatted(repositoryUrl, path, commitId));
+                    }
+                }
+            }
+            if (!(page.get("nextSkip") instanceof Integer nextSkip) || nextSkip <= skip) {
+                break;
+            }
+            skip = nextSkip;
+        }
+
+        if (key != null) {
+            changes.put(key, resultSet);
+            try {
+                MAPPER.writeValue(cacheFile.toFile(), resultSet);
+            } catch (IOException e) {
+                log.debug("Unable to cache changes {}: {}", cacheFile, e.getMessage());
+            }
+        }
+        return resultSet;
+    }
+
+    private static String commitId(final Object commit) {
+        return commit instanceof Map<?, ?> map && map.get("commitId") instanceof String commitId ? commitId : null;
+    }
+
+    // a concurrent call of the same url waits for the running request instead of doing the same request again
+    private String call(@NonNull final String url, final boolean trace) {
+        val future = new CompletableFuture<String>();
+        val running = calls.putIfAbsent(url, future);
+        if (running != null) {
+            return running.join();
+        }
+        try {
+            val body = azureRestShell.call(url, trace);
+            future.complete(body);
+            return body;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(url, future);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.github.ronlievens.regov.task.rewrite.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ronlievens.regov.task.rewrite.recipes.PomChangesRecipe;
+import com.github.ronlievens.regov.task.rewrite.recipes.UpdateDependencyRecipe;
+import com.github.ronlievens.regov.util.MapperUtils;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.openrewrite.Recipe;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.github.ronlievens.regov.util.CacheUtils.getCacheDirectory;
+import static com.github.ronlievens.regov.util.CacheUtils.sha256;
+
+@Slf4j
+public class RecipeResultCache {
+
+    private static final ObjectMapper MAPPER = MapperUtils.createJsonMapper(true, false);
+    private static final String CACHE_NAME = "recipe-results";
+    private static final String CACHE_FILE = "%s.json";
+    private static final String CACHE_EXTENSION = ".json";
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+    private static final long MAX_SIZE = 256L * 1024 * 1024;
+    private static final Duration MAX_AGE = Duration.ofDays(30);
+    private static final Map<Class<?>, Optional<String>> CLASS_VERSIONS = new ConcurrentHashMap<>();
+
+    private final Path directory;
+    private final Map<String, CachedResult> results;
+
+    public RecipeResultCache() {
+        this(getCacheDirectory(CACHE_NAME), MAX_SIZE, MAX_AGE);
+    }
+
+    public RecipeResultCache(@NonNull final Path directory, final long maxSize, @NonNull final Duration maxAge) {
+        this.directory = directory;
+        this.results = new ConcurrentHashMap<>();
+        evict(maxSize, maxAge);
+    }
+
+    public record CachedResult(
+        boolean changed,
+        String content
+    ) {
+    }
+
+    public Optional<CachedResult> get(@NonNull final String key) {
+        val result = results.get(key);
+        if (result != null) {
+            return Optional.of(result);
+        }
+
+        val file = directory.resolve(CACHE_FILE.formatted(key));
+        if (Files.exists(file)) {
+            try {
+                val cached = MAPPER.readValue(file.toFile(), CachedResult.class);
+                // the modification time is the last use of the entry, the least recently used entries are evicted first
+                Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+                results.put(key, cached);
+                return Optional.of(cached);
+            } catch (IOException e) {
+                log.warn("Unable to read cached recipe result {}: {}", file, e.getMessage());
+            }
+        }
+        return Optional.empty();
+    }
+
+    public void put(@NonNull final String key, @NonNull final CachedResult result) {
+        results.put(key, result);
+        try {
+            // written next to the entry and moved over it, so a concurrent run never reads a half written entry
+            val temporary = Files.createTempFile(directory, key, TEMPORARY_EXTENSION);
+            try {
+                MAPPER.writeValue(temporary.toFile(), result);
+                Files.move(temporary, directory.resolve(CACHE_FILE.formatted(key)), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            log.warn("Unable to write cached recipe result {}: {}", key, e.getMessage());
+        }
+    }
+
+    // the entries that weren't used for a while are removed, then the least recently used ones until the cache fits
+    private void evict(final long maxSize, @NonNull final Duration maxAge) {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        record Entry(Path file, long size, FileTime lastUsed) {
+        }
+        val entries = new ArrayList<Entry>();
+        val expired = FileTime.from(Instant.now().minus(maxAge));
+        var evicted = 0;
+        try (val files = Files.list(directory)) {
+            for (val file : files.toList()) {
+                try {
+                    val name = file.getFileName().toString();
+                    val lastUsed = Files.getLastModifiedTime(file);
+                    if (name.endsWith(TEMPORARY_EXTENSION) || (name.endsWith(CACHE_EXTENSION) && lastUsed.compareTo(expired) < 0)) {
+                        Files.deleteIfExists(file);
+                        evicted++;
+                    } else if (name.endsWith(CACHE_EXTENSION)) {
+                        entries.add(new Entry(file, Files.size(file), lastUsed));
+                    }
+                } catch (IOException e) {
+                    log.debug("Unable to evict cached recipe result {}: {}", file, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Unable to evict cached recipe results of {}: {}", directory, e.getMessage());
+            return;
+        }
+
+        var size = entries.stream().mapToLong(Entry::size).sum();
+        entries.sort(Comparator.comparing(Entry::lastUsed));
+        for (val entry : entries) {
+            if (size <= maxSize) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(entry.file());
+                size -= entry.size();
+                evicted++;
+            } catch (IOException e) {
+                log.debug("Unable to evict cached recipe result {}: {}", entry.file(), e.getMessage());
+            }
+        }
+        if (evicted > 0) {
+            log.debug("Evicted {} cached recipe results of {}", evicted, directory);
+        }
+    }
+
+    public static String key(@NonNull final Path sourcePath, @NonNull final String content, @NonNull final String fingerprint) {
+        return "%s-%s".formatted(sha256(sourcePath.toString().replace('\\', '/') + "\n" + content), fingerprint);
+    }
+
+    // the fingerprint is null when the result of the recipe doesn't only depend on the source file
+    public static String fingerprint(@NonNull final Recipe recipe) {
+        val description = new StringBuilder();
+        val version = classVersion(RewriteUtils.class);
+        if (version.isEmpty()) {
+            return null;
+        }
+        description.append(version.get());
+        return describe(recipe, description) ? sha256(description.toString()) : null;
+    }
+
+    // the version of a class is the modification time of its jar, the class files of a development build (a directory)
+    // are hashed with their nested classes (like the visitors), so a rebuilt recipe never reuses a stale result
+    static Optional<String> classVersion(@NonNull final Class<?> type) {
+        return CLASS_VERSIONS.computeIfAbsent(type, RecipeResultCache::readClassVersion);
+    }
+
+    private static Optional<String> readClassVersion(@NonNull final Class<?> type) {
+        try {
+            val codeSource = type.getProtectionDomain().getCodeSource();
+            if (codeSource == null || codeSource.getLocation() == null) {
+                return Optional.empty();
+            }
+            val location = Path.of(codeSource.getLocation().toURI());
+            if (Files.isRegularFile(location)) {
+                return Optional.of("%s %d %d".formatted(location.getFileName(), Files.getLastModifiedTime(location).toMillis(), Files.size(location)));
+            }
+
+            val classFile = location.resolve(type.getName().replace('.', '/') + ".class");
+            val nestedPrefix = classFile.getFileName().toString().replace(".class", "$");
+            val hashes = new StringBuilder();
+            try (val files = Files.list(classFile.getParent())) {
+                for (val file : files.filter(file -> file.equals(classFile) || file.getFileName().toString().startsWith(nestedPrefix)).sorted().toList()) {
+                    hashes.append(file.getFileName()).append(' ').append(sha256(Files.readAllBytes(file))).append('\n');
+                }
+            }
+            return Optional.of(sha256(hashes.toString()));
+        } catch (IOException | URISyntaxException | RuntimeException e) {
+            log.debug("Unable to determine the version of {}: {}", type.getName(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static boolean describe(@NonNull final Recipe recipe, @NonNull final StringBuilder description) {
+        if (recipe instanceof UpdateDependencyRecipe updateDependencyRecipe && Boolean.TRUE.equals(updateDependencyRecipe.getAutoUpdateVersion())) {
+            // the latest version is looked up in the maven repository
+            return false;
+        }
+
+        if (recipe instanceof PomChangesRecipe pomChangesRecipe) {
+            for (val change : pomChangesRecipe.getChanges()) {
+                if (!describe(change, description)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        val version = classVersion(recipe.getClass());
+        if (version.isEmpty()) {
+            return false;
+        }
+        description.append('\n').append(recipe.getName()).append(' ').append(version.get());
+        if (recipe.getRecipeList().isEmpty()) {
+            // the custom recipes use lombok @Data, so the toString contains all the options
+            description.append(' ').append(recipe);
+        }
+        for (val child : recipe.getRecipeList()) {
+            if (!describe(child, description)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.ronlievens.regov.task.rewrite.utils;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ronlievens.regov.task.rewrite.model.RecipeProfileModel;
+import com.github.ronlievens.regov.task.rewrite.model.RewriteProfileModel;
+import com.github.ronlievens.regov.util.MapperUtils;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.openrewrite.*;
+import org.openrewrite.scheduling.RecipeRunCycle;
+import org.openrewrite.table.RecipeRunStats;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class RewriteProfileUtils {
+
+    public static final String PROFILE_FILE = "rewrite-profile.json";
+
+    private static final ObjectMapper MAPPER = MapperUtils.createJsonMapper(true, false);
+    private static final String ROW_FORMAT = "%-50s %8s %8s %10s %10s %10s %8s";
+
+    // the execution context keeps the details of the last cycle of the recipe run
+    public static int cycles(@NonNull final ExecutionContext context) {
+        return context.getMessage(ExecutionContext.CURRENT_CYCLE) instanceof RecipeRunCycle<?> cycle ? cycle.getCycle() : 0;
+    }
+
+    // the stats of the recipe runs (one per cycle when the cycles are controlled) are summed per recipe
+    public static List<RecipeProfileModel> recipeProfiles(@NonNull final List<RecipeRun> recipeRuns) {
+        val profiles = new LinkedHashMap<String, RecipeProfileModel>();
+        for (val recipeRun : recipeRuns) {
+            addRecipeProfiles(recipeRun, profiles);
+        }
+        val result = new ArrayList<>(profiles.values());
+        result.sort(Comparator.comparingLong(RecipeProfileModel::getEditMillis).reversed());
+        return result;
+    }
+
+    private static void addRecipeProfiles(@NonNull final RecipeRun recipeRun, @NonNull final Map<String, RecipeProfileModel> profiles) {
+        for (val table : recipeRun.getDataTables().entrySet()) {
+            if (!(table.getKey() instanceof RecipeRunStats)) {
+                continue;
+            }
+            for (val row : table.getValue()) {
+                // the field names of the stats changed between the OpenRewrite versions, so read the row as a map
+                final Map<String, Object> values = MAPPER.convertValue(row, new TypeReference<>() {
+                });
+                val recipe = String.valueOf(values.get("recipe"));
+                val profile = profiles.computeIfAbsent(recipe, name -> RecipeProfileModel.builder().recipe(name).build());
+                profile.setSourceFiles(profile.getSourceFiles() + number(values, "sourceFiles"));
+                profile.setScanMillis(profile.getScanMillis() + TimeUnit.NANOSECONDS.toMillis(number(values, "scanTotalTime", "scanTotalTimeNs")));
+                profile.setEditMillis(profile.getEditMillis() + TimeUnit.NANOSECONDS.toMillis(number(values, "editTotalTime", "editTotalTimeNs")));
+            }
+        }
+    }
+
+    public static void logProfiles(@NonNull final List<RewriteProfileModel> profiles) {
+        if (profiles.isEmpty()) {
+            return;
+        }
+
+        log.info("Rewrite profile:");
+        log.info(ROW_FORMAT.formatted("Repository / recipe", "Files", "Changed", "Parse ms", "Run ms", "Write ms", "Cycles"));
+        for (val profile : profiles) {
+            log.info(ROW_FORMAT.formatted(profile.getRepository(), profile.getSourceFiles(), profile.getChangedFiles(), profile.getParseMillis(), profile.getRunMillis(), profile.getWriteMillis(), profile.getCycles()));
+            for (val recipe : profile.getRecipes()) {
+                log.info(ROW_FORMAT.formatted("  " + recipe.getRecipe(), recipe.getSourceFiles(), "", "", recipe.getScanMillis() + recipe.getEditMillis(), "", ""));
+            }
+        }
+    }
+
+    public static void writeProfiles(@NonNull final Path destination, @NonNull final List<RewriteProfileModel> profiles) {
+        if (profiles.isEmpty()) {
+            return;
+        }
+
+        val file = destination.resolve(PROFILE_FILE);
+        try {
+            MAPPER.writeValue(file.toFile(), profiles);
+            log.info("Rewrite profile written to {}", file.toAbsolutePath());
+        } catch (IOException e) {
+            log.warn("Unable to write the rewrite profile {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static long number(@NonNull final Map<String, Object> values, @NonNull final String... names) {
+        for (val name : names) {
+            if (values.get(name) instanceof Number number) {
+                return number.longValue();
+            }
+        }
+        return 0;
+    }
+}
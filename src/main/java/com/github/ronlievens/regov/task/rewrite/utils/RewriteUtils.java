@@ -1,5 +1,11 @@
 package com.github.ronlievens.regov.task.rewrite.utils;
 
+import com.github.ronlievens.regov.task.rewrite.model.RewriteProfileModel;
+import com.github.ronlievens.regov.task.rewrite.recipes.AddDependencyRecipe;
+import com.github.ronlievens.regov.task.rewrite.recipes.PomChangesRecipe;
+import com.github.ronlievens.regov.task.rewrite.recipes.RemoveDependencyRecipe;
+import com.github.ronlievens.regov.task.rewrite.recipes.UpdateDependencyRecipe;
+import com.github.ronlievens.regov.task.rewrite.recipes.UpdateParentRecipe;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
@@ -9,32 +15,93 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.openrewrite.*;
 import org.openrewrite.config.CompositeRecipe;
+import org.openrewrite.config.DeclarativeRecipe;
 import org.openrewrite.config.Environment;
+import org.openrewrite.config.RecipeDescriptor;
 import org.openrewrite.config.YamlResourceLoader;
 import org.openrewrite.internal.InMemoryLargeSourceSet;
 import org.openrewrite.java.JavaParser;
+import org.openrewrite.java.internal.JavaTypeCache;
 import org.openrewrite.marker.Generated;
+import org.openrewrite.marker.Markers;
+import org.openrewrite.marker.RecipesThatMadeChanges;
+import org.openrewrite.quark.Quark;
+import org.openrewrite.style.NamedStyles;
 import org.openrewrite.maven.AbstractRewriteBaseRunMojo;
 import org.openrewrite.maven.RewriteMojoRun;
 import org.openrewrite.xml.XmlParser;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.charset.CharacterCodingException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 import static com.github.ronlievens.regov.util.PathUtils.pathFilter;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 @Slf4j
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class RewriteUtils {
 
+    public static final String LOCATION_POM = "pom.xml";
+
+    private static final RecipeResultCache RESULT_CACHE = new RecipeResultCache();
+    private static final LstCache LST_CACHE = new LstCache();
+
+    // references the JDK types that almost every repository uses, these are attributed only once
+    private static final String JDK_TYPES_SOURCE = """
+        import java.io.*;
+        import java.math.*;
+        import java.nio.file.*;
+        import java.time.*;
+        import java.util.*;
+        import java.util.concurrent.*;
+        import java.util.function.*;
+        import java.util.stream.*;
+
+        class JdkTypes {
+            Object object; String string; StringBuilder stringBuilder; Integer integer; Long longValue; Boolean booleanValue;
+            BigDecimal bigDecimal; BigInteger bigInteger; Optional<String> optional; Objects objects;
+            List<String> list; ArrayList<String> arrayList; Map<String, String> map; HashMap<String, String> hashMap;
+            Set<String> set; HashSet<String> hashSet; Collection<String> collection; Collections collections; Arrays arrays;
+            Stream<String> stream; Collectors collectors; Function<String, String> function; Supplier<String> supplier;
+            Consumer<String> consumer; Predicate<String> predicate; CompletableFuture<String> future;
+            ConcurrentHashMap<String, String> concurrentHashMap; LocalDate localDate; LocalDateTime localDateTime;
+            Instant instant; Duration duration; UUID uuid; Path path; Files files; InputStream inputStream;
+            OutputStream outputStream; IOException ioException; RuntimeException runtimeException; Exception exception;
+        }
+        """;
+
+    // recipes that only visit the root pom.xml, these can be evaluated without a local clone
+    private static final Set<Class<? extends Recipe>> POM_RECIPES = Set.of(
+        AddDependencyRecipe.class,
+        PomChangesRecipe.class,
+        RemoveDependencyRecipe.class,
+        UpdateDependencyRecipe.class,
+        UpdateParentRecipe.class
+    );
+
     public static Recipe loadRecipe(final String recipeLocation, final String recipe) {
         val result = new CompositeRecipe(new ArrayList<>());
         if (isNotBlank(recipeLocation)) {
@@ -63,50 +130,353 @@ public final class RewriteUtils {
     }
 
     public static boolean rewrite(@NonNull final Path path, final Recipe recipe) throws IOException {
+        return rewrite(path, recipe, new RewriteProfileModel(), CyclePolicy.DEFAULT, SourceSelection.DEFAULT, null);
+    }
+
+    // with the commit id of a clean checkout the parsed sources are kept in memory, so the next campaign on the same
+    // commit skips the parsing until the repository is released
+    public static boolean rewrite(@NonNull final Path path, final Recipe recipe, @NonNull final RewriteProfileModel profile, @NonNull final CyclePolicy cyclePolicy, @NonNull final SourceSelection sourceSelection, final String commitId) throws IOException {
         log.trace("Running openrewrite on path: {}", path.toAbsolutePath());
-        val env = Environment.builder().scanYamlResources().build();
+        val pomKeys = isPomRecipe(recipe) ? pomCacheKeys(path, recipe) : Map.<Path, String>of();
+        if (!pomKeys.isEmpty() && pomKeys.values().stream().allMatch(key -> RESULT_CACHE.get(key).map(cached -> !cached.changed()).orElse(false))) {
+            log.debug("Skip the recipe run, the cached results of the poms in {} are unchanged", path);
+            profile.setSourceFiles(pomKeys.size());
+            validate(recipe);
+            return false;
+        }
+
         val context = new InMemoryExecutionContext();
-        val javaParser = JavaParser.fromJavaVersion();
-        javaParser.styles(env.listStyles()).logCompilationWarningsAndErrors(false);
-        val sourceSet = directoryListing(context, javaParser, path);
+        val javaParser = javaParser();
+
+        val cacheKey = commitId != null ? LstCache.key(commitId, parserConfiguration() + ", " + sourceSelection.describe()) : null;
+        var start = System.nanoTime();
+        val sourceFiles = directoryListing(context, javaParser, path, sourceSelection, cacheKey);
+        profile.setParseMillis(millisSince(start));
+        profile.setSourceFiles(sourceFiles.size());
 
-        val results = new AbstractRewriteBaseRunMojo.ResultsContainer(path, runRecipe(recipe, sourceSet, context));
+        start = System.nanoTime();
+        final List<Result> changes;
+        if (cyclePolicy.converge()) {
+            changes = runConverging(prepare(recipe), sourceFiles, cyclePolicy.maxCycles(), profile);
+        } else {
+            val recipeRun = prepare(recipe).run(new InMemoryLargeSourceSet(sourceFiles), context, cyclePolicy.maxCycles(), 1);
+            changes = results(recipeRun);
+            profile.setCycles(RewriteProfileUtils.cycles(context));
+            profile.setRecipes(RewriteProfileUtils.recipeProfiles(List.of(recipeRun)));
+        }
+        storePomResults(pomKeys, changes);
+        val results = new AbstractRewriteBaseRunMojo.ResultsContainer(path, changes);
+        profile.setRunMillis(millisSince(start));
+        profile.setChangedFiles(changes.size());
+
+        start = System.nanoTime();
         try {
             val mojoRunner = new RewriteMojoRun(context, results);
             mojoRunner.execute();
         } catch (MojoExecutionException | MojoFailureException e) {
             throw new RuntimeException(e);
         }
+        profile.setWriteMillis(millisSince(start));
+
+        validate(recipe);
+        return results.isNotEmpty();
+    }
 
+    private static void validate(@NonNull final Recipe recipe) {
         for (val recipeItem : recipe.getRecipeList()) {
             val validation = recipeItem.validate();
             if (validation.isInvalid()) {
                 log.error("{}", validation.getValue());
             }
         }
-        return results.isNotEmpty();
     }
 
-    private static LargeSourceSet directoryListing(final InMemoryExecutionContext ctx, final JavaParser.Builder<? extends JavaParser, ?> javaParser, final Path path) throws IOException {
-        val javaFiles = pathFilter(path, List.of(".java"), null, null);
-        val xmlFiles = pathFilter(path, List.of(".xjb", ".xml"), null, null);
+    public static boolean isPomRecipe(@NonNull final Recipe recipe) {
+        if (recipe.getRecipeList().isEmpty()) {
+            return POM_RECIPES.contains(recipe.getClass());
+        }
+        if (recipe instanceof CompositeRecipe || recipe instanceof DeclarativeRecipe) {
+            return recipe.getRecipeList().stream().allMatch(RewriteUtils::isPomRecipe);
+        }
+        return false;
+    }
+
+    public static boolean hasPomChanges(@NonNull final String pom, @NonNull final Recipe recipe) {
+        return rewritePom(Path.of(LOCATION_POM), pom, recipe).isPresent();
+    }
+
+    public static Optional<String> rewritePom(@NonNull final Path sourcePath, @NonNull final String pom, @NonNull final Recipe recipe) {
+        val fingerprint = RecipeResultCache.fingerprint(recipe);
+        val key = fingerprint != null ? RecipeResultCache.key(sourcePath, pom, fingerprint) : null;
+        if (key != null) {
+            val cached = RESULT_CACHE.get(key);
+            if (cached.isPresent()) {
+                log.trace("Reuse cached recipe result for {}", sourcePath);
+                return cached.get().changed() ? Optional.of(cached.get().content()) : Optional.empty();
+            }
+        }
+
+        log.trace("Run recipe {} on in memory {}", recipe, sourcePath);
+        val context = new InMemoryExecutionContext();
+        val input = new Parser.Input(sourcePath, () -> new ByteArrayInputStream(pom.getBytes(UTF_8)));
+        val sourceFiles = new XmlParser.Builder().build().parseInputs(List.of(input), null, context).toList();
+        val result = runRecipe(recipe, new InMemoryLargeSourceSet(sourceFiles), context).stream()
+            .map(Result::getAfter)
+            .filter(Objects::nonNull)
+            .map(SourceFile::printAll)
+            .findFirst();
+
+        if (key != null) {
+            RESULT_CACHE.put(key, new RecipeResultCache.CachedResult(result.isPresent(), result.orElse(null)));
+        }
+        return result;
+    }
+
+    // the pom recipes only depend on the content of the pom itself, so the result of each pom is memoized and a run of
+    // which all poms are known to stay unchanged is skipped. No keys when a pom isn't utf-8 or the recipe can't be cached.
+    private static Map<Path, String> pomCacheKeys(@NonNull final Path path, @NonNull final Recipe recipe) throws IOException {
+        val fingerprint = RecipeResultCache.fingerprint(recipe);
+        if (fingerprint == null) {
+            return Map.of();
+        }
+        val keys = new HashMap<Path, String>();
+        for (val pom : pathFilter(path, List.of(LOCATION_POM), null, null)) {
+            if (!LOCATION_POM.equals(pom.getFileName().toString())) {
+                continue;
+            }
+            val sourcePath = path.toAbsolutePath().relativize(pom.toAbsolutePath());
+            try {
+                keys.put(sourcePath, RecipeResultCache.key(sourcePath, Files.readString(pom), fingerprint));
+            } catch (CharacterCodingException e) {
+                log.debug("Pom {} is not UTF-8 encoded, the results are not cached: {}", sourcePath, e.getMessage());
+                return Map.of();
+            }
+        }
+        return keys;
+    }
+
+    private static void storePomResults(@NonNull final Map<Path, String> pomKeys, @NonNull final List<Result> changes) {
+        val changed = new HashMap<Path, Result>();
+        for (val change : changes) {
+            if (change.getBefore() != null) {
+                changed.put(change.getBefore().getSourcePath(), change);
+            }
+        }
+        pomKeys.forEach((sourcePath, key) -> {
+            val change = changed.get(sourcePath);
+            if (change == null) {
+                RESULT_CACHE.put(key, new RecipeResultCache.CachedResult(false, null));
+            } else if (change.getAfter() != null && sourcePath.equals(change.getAfter().getSourcePath())) {
+                RESULT_CACHE.put(key, new RecipeResultCache.CachedResult(true, change.getAfter().printAll()));
+            }
+        });
+    }
+
+    public static List<Result> rewriteInMemory(@NonNull final Map<Path, String> sources, @NonNull final Recipe recipe) {
+        log.trace("Running openrewrite in memory on {} files", sources.size());
+        val context = new InMemoryExecutionContext();
+        val javaInputs = new ArrayList<Parser.Input>();
+        val xmlInputs = new ArrayList<Parser.Input>();
+        for (val source : sources.entrySet()) {
+            val input = new Parser.Input(source.getKey(), () -> new ByteArrayInputStream(source.getValue().getBytes(UTF_8)));
+            if (source.getKey().toString().endsWith(".java")) {
+                javaInputs.add(input);
+            } else {
+                xmlInputs.add(input);
+            }
+        }
+
+        val sourceFiles = new ArrayList<SourceFile>(new XmlParser.Builder().build().parseInputs(xmlInputs, null, context).toList());
+        if (!javaInputs.isEmpty()) {
+            sourceFiles.addAll(javaParser().build().parseInputs(javaInputs, null, context).toList());
+        }
+        return runRecipe(recipe, new InMemoryLargeSourceSet(sourceFiles), context);
+    }
+
+    // the parsed sources of a repository are kept in memory until the repository is finished
+    public static void releaseParsedSources(@NonNull final Path path) {
+        LST_CACHE.release(path);
+    }
+
+    private static List<SourceFile> directoryListing(final InMemoryExecutionContext ctx, final JavaParser.Builder<? extends JavaParser, ?> javaParser, final Path path, final SourceSelection sourceSelection, final String cacheKey) throws IOException {
+        val javaFiles = new ArrayList<Path>();
+        val xmlFiles = new ArrayList<Path>();
+        val opaqueFiles = new ArrayList<Path>();
+        for (val file : pathFilter(path, List.of(".java"), null, null)) {
+            (sourceSelection.isOpaque(path, file) ? opaqueFiles : javaFiles).add(file);
+        }
+        for (val file : pathFilter(path, List.of(".xjb", ".xml"), null, null)) {
+            (sourceSelection.isOpaque(path, file) ? opaqueFiles : xmlFiles).add(file);
+        }
 
         log.trace("Found xml files: {}", xmlFiles);
         log.trace("Found java files: {}", javaFiles);
+        if (!opaqueFiles.isEmpty()) {
+            log.debug("Skip parsing of {} large or generated files: {}", opaqueFiles.size(), opaqueFiles);
+        }
+
+        if (cacheKey != null) {
+            val sourcePaths = new HashSet<Path>();
+            Stream.of(javaFiles, xmlFiles, opaqueFiles).flatMap(List::stream).forEach(file -> sourcePaths.add(path.toAbsolutePath().relativize(file.toAbsolutePath())));
+            val cached = LST_CACHE.load(path, cacheKey, sourcePaths);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+        }
 
         val xmlParser = new XmlParser.Builder().build();
         val bindingSource = xmlParser.parse(xmlFiles, path, ctx);
         val javaSourceFiles = javaParser.build().parse(javaFiles, path, ctx);
+        // the skipped files are kept as quarks with the generated marker, so their results are filtered out in runRecipe
+        val quarks = opaqueFiles.stream().map(file -> (SourceFile) new Quark(Tree.randomId(),
+            path.toAbsolutePath().relativize(file.toAbsolutePath()),
+            Markers.build(List.of(new Generated(Tree.randomId()))),
+            null,
+            null));
+
+        final List<SourceFile> sourceFiles = Stream.of(javaSourceFiles, bindingSource, quarks).flatMap(s -> s).toList();
+        if (cacheKey != null) {
+            LST_CACHE.store(path, cacheKey, sourceFiles);
+        }
+        return sourceFiles;
+    }
+
+    // the styles and the attributed JDK types are shared by all repositories, every repository gets its own
+    // copy of the type cache, so the types of its sources never leak into another repository
+    private static final class ParserResources {
+        private static final List<NamedStyles> STYLES = Environment.builder().scanYamlResources().build().listStyles();
+        private static final JavaTypeCache JDK_TYPES = jdkTypeCache();
+    }
+
+    private static JavaParser.Builder<? extends JavaParser, ?> javaParser() {
+        val javaParser = JavaParser.fromJavaVersion();
+        javaParser.styles(ParserResources.STYLES).logCompilationWarningsAndErrors(false).typeCache(ParserResources.JDK_TYPES.clone());
+        return javaParser;
+    }
+
+    private static JavaTypeCache jdkTypeCache() {
+        val typeCache = new JavaTypeCache();
+        JavaParser.fromJavaVersion().typeCache(typeCache).logCompilationWarningsAndErrors(false).build()
+            .parse(new InMemoryExecutionContext(), JDK_TYPES_SOURCE)
+            .toList();
+        return typeCache;
+    }
+
+    private static String parserConfiguration() {
+        val styles = ParserResources.STYLES.stream().map(NamedStyles::getName).sorted().toList();
+        return "regov %s, rewrite %s, java %s, styles %s".formatted(
+            RewriteUtils.class.getPackage().getImplementationVersion(),
+            Recipe.class.getPackage().getImplementationVersion(),
+            System.getProperty("java.version"),
+            styles);
+    }
+
+    // Runs one cycle at a time, only the recipes that made changes and ask for another cycle (like the default scheduler)
+    // are run again and the next cycle only visits the files that changed in the previous one.
+    private static List<Result> runConverging(final Recipe recipe, final List<SourceFile> sourceFiles, final int maxCycles, final RewriteProfileModel profile) {
+        val originals = new HashMap<UUID, SourceFile>();
+        sourceFiles.forEach(sourceFile -> originals.put(sourceFile.getId(), sourceFile));
+        val latest = new LinkedHashMap<UUID, SourceFile>();
+        val recipeRuns = new ArrayList<RecipeRun>();
+        val parents = new IdentityHashMap<Recipe, List<Recipe>>();
+        final Set<Recipe> cycleRecipes = Collections.newSetFromMap(new IdentityHashMap<>());
 
-        return new InMemoryLargeSourceSet(Stream.of(javaSourceFiles, bindingSource).flatMap(s -> s).toList());
+        var recipes = units(recipe, List.of(), parents);
+        var pending = sourceFiles;
+        var cycle = 0;
+        while (cycle < maxCycles && !recipes.isEmpty() && !pending.isEmpty()) {
+            cycle++;
+            val cycleRecipe = new CompositeRecipe(recipes);
+            cycleRecipes.add(cycleRecipe);
+            // every cycle has its own context, so the data tables (like the recipe stats) only hold the cycle itself
+            val recipeRun = cycleRecipe.run(new InMemoryLargeSourceSet(pending), new InMemoryExecutionContext(), 1, 1);
+            recipeRuns.add(recipeRun);
+
+            val changed = new ArrayList<SourceFile>();
+            val changingRecipes = new HashSet<String>();
+            for (val result : recipeRun.getChangeset().getAllResults()) {
+                val id = result.getAfter() != null ? result.getAfter().getId() : result.getBefore().getId();
+                latest.put(id, result.getAfter());
+                if (result.getAfter() != null) {
+                    changed.add(result.getAfter());
+                }
+                result.getRecipeDescriptorsThatMadeChanges().forEach(descriptor -> recipeNames(descriptor, changingRecipes));
+            }
+            log.trace("Cycle {} changed {} files with recipes {}", cycle, changed.size(), changingRecipes);
+
+            recipes = recipes.stream().filter(unit -> changingRecipes.contains(unit.getName()) && unit.causesAnotherCycle()).toList();
+            pending = changed;
+        }
+        profile.setCycles(cycle);
+        profile.setRecipes(RewriteProfileUtils.recipeProfiles(recipeRuns));
+
+        val results = new ArrayList<Result>();
+        for (val entry : latest.entrySet()) {
+            val before = originals.get(entry.getKey());
+            val after = entry.getValue();
+            if (before != after && (before == null || before.getMarkers().findFirst(Generated.class).isEmpty())) {
+                val recipesThatMadeChanges = after != null
+                    ? after.getMarkers().findFirst(RecipesThatMadeChanges.class).map(RecipesThatMadeChanges::getRecipes).orElse(List.of())
+                    : List.<List<Recipe>>of();
+                results.add(new Result(before, after, recipeStacks(recipesThatMadeChanges, cycleRecipes, parents)));
+            }
+        }
+        return results;
+    }
+
+    // the composite recipes are split, so each recipe can converge on its own, the composites above a unit are kept to
+    // log the recipes that made changes with their original nesting
+    private static List<Recipe> units(final Recipe recipe, final List<Recipe> path, final Map<Recipe, List<Recipe>> parents) {
+        if (recipe instanceof CompositeRecipe) {
+            val childPath = new ArrayList<>(path);
+            childPath.add(recipe);
+            return recipe.getRecipeList().stream().flatMap(child -> units(child, childPath, parents).stream()).toList();
+        }
+        parents.put(recipe, path);
+        return List.of(recipe);
+    }
+
+    // the recipe stacks of a cycle start with the composite of the cycle, the composites above the unit are put back
+    private static List<List<Recipe>> recipeStacks(final Collection<List<Recipe>> stacks, final Set<Recipe> cycleRecipes, final Map<Recipe, List<Recipe>> parents) {
+        val result = new ArrayList<List<Recipe>>(stacks.size());
+        for (val stack : stacks) {
+            if (stack.size() > 1 && cycleRecipes.contains(stack.get(0)) && parents.containsKey(stack.get(1))) {
+                val restored = new ArrayList<Recipe>();
+                restored.add(stack.get(0));
+                restored.addAll(parents.get(stack.get(1)));
+                restored.addAll(stack.subList(1, stack.size()));
+                result.add(restored);
+            } else {
+                result.add(stack);
+            }
+        }
+        return result;
+    }
+
+    private static void recipeNames(final RecipeDescriptor descriptor, final Set<String> names) {
+        names.add(descriptor.getName());
+        descriptor.getRecipeList().forEach(child -> recipeNames(child, names));
     }
 
     private static List<Result> runRecipe(final Recipe recipe, final LargeSourceSet sourceSet, final ExecutionContext context) {
-        return recipe.run(sourceSet, context).getChangeset().getAllResults().stream().filter(source -> {
+        return results(prepare(recipe).run(sourceSet, context));
+    }
+
+    // the custom pom recipes are fused, so the pom is visited once instead of once per recipe
+    private static Recipe prepare(final Recipe recipe) {
+        return isPomRecipe(recipe) ? PomChangesRecipe.fuse(recipe) : recipe;
+    }
+
+    private static List<Result> results(final RecipeRun recipeRun) {
+        return recipeRun.getChangeset().getAllResults().stream().filter(source -> {
             if (source.getBefore() != null) {
                 return source.getBefore().getMarkers().findFirst(Generated.class).isEmpty();
             }
             return true;
         }).toList();
     }
+
+    private static long millisSince(final long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
 }
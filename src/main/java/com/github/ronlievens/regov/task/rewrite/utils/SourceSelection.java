@@ -0,0 +1,86 @@
+package com.github.ronlievens.regov.task.rewrite.utils;
+
+import lombok.NonNull;
+import lombok.val;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+// Files larger than maxFileSize, below one of the generated paths (glob patterns relative to the repository) or with a
+// generated annotation or generated header comment are not parsed, the recipes see them as opaque files
+public record SourceSelection(
+    long maxFileSize,
+    List<String> generatedPaths
+) {
+
+    public static final long DEFAULT_MAX_FILE_SIZE = 1024 * 1024;
+    public static final List<String> DEFAULT_GENERATED_PATHS = List.of("**/src/main/generated/**", "**/generated-sources/**", "**/target/**");
+    public static final SourceSelection DEFAULT = new SourceSelection(DEFAULT_MAX_FILE_SIZE, DEFAULT_GENERATED_PATHS);
+
+    private static final Map<String, PathMatcher> MATCHERS = new ConcurrentHashMap<>();
+    private static final int HEADER_SIZE = 2048;
+    private static final String ANY_DIRECTORY = "**/";
+    // only a generated annotation at the start of a line or a marker in a comment line counts, not the text anywhere
+    private static final Pattern GENERATED_MARKER = Pattern.compile(
+        "^\\s*@((javax|jakarta)\\.annotation\\.(processing\\.)?)?Generated\\b"
+            + "|^\\s*(//|/\\*|\\*|<!--|#).*(DO NOT EDIT|<auto-generated|This file was automatically generated|Generated by the protocol buffer compiler)",
+        Pattern.MULTILINE);
+
+    public static SourceSelection of(final long maxFileSize, final List<String> generatedPaths) {
+        val paths = new ArrayList<>(DEFAULT_GENERATED_PATHS);
+        if (generatedPaths != null) {
+            paths.addAll(generatedPaths);
+        }
+        return new SourceSelection(maxFileSize > 0 ? maxFileSize : DEFAULT_MAX_FILE_SIZE, List.copyOf(paths));
+    }
+
+    public boolean isOpaque(@NonNull final Path root, @NonNull final Path file) {
+        try {
+            if (Files.size(file) > maxFileSize) {
+                return true;
+            }
+        } catch (IOException e) {
+            return false;
+        }
+
+        val relativePath = root.toAbsolutePath().relativize(file.toAbsolutePath());
+        for (val pattern : generatedPaths) {
+            if (matches(pattern, relativePath)) {
+                return true;
+            }
+            // a leading **/ also covers the root of the repository (like target/ next to the root pom)
+            if (pattern.startsWith(ANY_DIRECTORY) && matches(pattern.substring(ANY_DIRECTORY.length()), relativePath)) {
+                return true;
+            }
+        }
+        return hasGeneratedMarker(file);
+    }
+
+    private static boolean matches(@NonNull final String pattern, @NonNull final Path relativePath) {
+        return MATCHERS.computeIfAbsent(pattern, glob -> FileSystems.getDefault().getPathMatcher("glob:" + glob)).matches(relativePath);
+    }
+
+    private static boolean hasGeneratedMarker(@NonNull final Path file) {
+        try (InputStream input = Files.newInputStream(file)) {
+            val header = new String(input.readNBytes(HEADER_SIZE), StandardCharsets.UTF_8);
+            return GENERATED_MARKER.matcher(header).find();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // part of the key of the parsed source cache, other rules give other trees
+    public String describe() {
+        return "max %d bytes, generated %s".formatted(maxFileSize, generatedPaths);
+    }
+}
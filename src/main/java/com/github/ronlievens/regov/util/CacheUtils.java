@@ -0,0 +1,38 @@
+package com.github.ronlievens.regov.util;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.val;
+
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import static com.github.ronlievens.regov.util.PathUtils.createDirectory;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class CacheUtils {
+
+    private static final String DIRECTORY_POSTFIX = ".config/regov/cache";
+
+    public static Path getCacheDirectory(@NonNull final String name) {
+        val directory = Path.of(System.getProperty("user.home"), DIRECTORY_POSTFIX, name);
+        createDirectory(directory);
+        return directory;
+    }
+
+    public static String sha256(@NonNull final String value) {
+        return sha256(value.getBytes(UTF_8));
+    }
+
+    public static String sha256(@NonNull final byte[] value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
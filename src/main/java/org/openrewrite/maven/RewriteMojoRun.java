@@ -9,10 +9,16 @@ import org.openrewrite.quark.Quark;
 import org.openrewrite.remote.Remote;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.util.List;
 
@@ -20,6 +26,8 @@ import java.util.List;
 @AllArgsConstructor
 public class RewriteMojoRun extends AbstractRewriteBaseRunMojo {
 
+    private static final long TRANSFER_SIZE = 8L * 1024 * 1024;
+
     private final InMemoryExecutionContext ctx;
     private final ResultsContainer results;
 
@@ -73,10 +81,8 @@ public class RewriteMojoRun extends AbstractRewriteBaseRunMojo {
             log(recipeChangeLogLevel, "Estimate time saved: " + formatDuration(estimateTimeSaved));
 
             try {
-                for (Result result : results.generated) {
-                    assert result.getAfter() != null;
-                    writeAfter(results.getProjectRoot(), result, ctx);
-                }
+                // generated and refactored files are independent of each other, so these are written in parallel
+                results.generated.parallelStream().forEach(result -> writeAfter(results.getProjectRoot(), result, ctx));
                 for (Result result : results.deleted) {
                     assert result.getBefore() != null;
                     Path originalLocation = results.getProjectRoot().resolve(result.getBefore().getSourcePath()).normalize();
@@ -115,11 +121,7 @@ public class RewriteMojoRun extends AbstractRewriteBaseRunMojo {
                         writeAfter(results.getProjectRoot(), result, ctx);
                     }
                 }
-                for (Result result : results.refactoredInPlace) {
-                    assert result.getBefore() != null;
-                    assert result.getAfter() != null;
-                    writeAfter(results.getProjectRoot(), result, ctx);
-                }
+                results.refactoredInPlace.parallelStream().forEach(result -> writeAfter(results.getProjectRoot(), result, ctx));
                 List<Path> emptyDirectories = results.newlyEmptyDirectories();
                 if (!emptyDirectories.isEmpty()) {
                     getLog().info("Removing " + emptyDirectories.size() + " newly empty directories:");
@@ -136,6 +138,7 @@ public class RewriteMojoRun extends AbstractRewriteBaseRunMojo {
 
     private static void writeAfter(Path root, Result result, ExecutionContext ctx) {
         if (result.getAfter() == null || result.getAfter() instanceof Quark) {
+            // Don't attempt to write to a Quark; it has already been logged as change that has been made
             return;
         }
         Path targetPath = root.resolve(result.getAfter().getSourcePath());
@@ -144,31 +147,26 @@ public class RewriteMojoRun extends AbstractRewriteBaseRunMojo {
             //noinspection ResultOfMethodCallIgnored
             targetFile.getParentFile().mkdirs();
         }
-        if (result.getAfter() instanceof Binary) {
-            try (FileOutputStream sourceFileWriter = new FileOutputStream(targetFile)) {
-                sourceFileWriter.write(((Binary) result.getAfter()).getBytes());
-            } catch (IOException e) {
-                throw new UncheckedIOException("Unable to rewrite source files", e);
-            }
-        } else if (result.getAfter() instanceof Remote remote) {
-            try (FileOutputStream sourceFileWriter = new FileOutputStream(targetFile)) {
-                InputStream source = remote.getInputStream(ctx);
-                byte[] buf = new byte[4096];
-                int length;
-                while ((length = source.read(buf)) > 0) {
-                    sourceFileWriter.write(buf, 0, length);
+        try {
+            if (result.getAfter() instanceof Binary binary) {
+                writeIfChanged(targetPath, ByteBuffer.wrap(binary.getBytes()));
+            } else if (result.getAfter() instanceof Remote remote) {
+                try (InputStream source = remote.getInputStream(ctx);
+                     ReadableByteChannel sourceChannel = source instanceof FileInputStream fileSource ? fileSource.getChannel() : Channels.newChannel(source);
+                     FileChannel targetChannel = FileChannel.open(targetPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    long position = 0;
+                    long transferred;
+                    while ((transferred = targetChannel.transferFrom(sourceChannel, position, TRANSFER_SIZE)) > 0) {
+                        position += transferred;
+                    }
                 }
-            } catch (IOException e) {
-                throw new UncheckedIOException("Unable to rewrite source files", e);
-            }
-        } else if (!(result.getAfter() instanceof Quark)) {
-            // Don't attempt to write to a Quark; it has already been logged as change that has been made
-            Charset charset = result.getAfter().getCharset() == null ? StandardCharsets.UTF_8 : result.getAfter().getCharset();
-            try (BufferedWriter sourceFileWriter = Files.newBufferedWriter(targetPath, charset)) {
-                sourceFileWriter.write(result.getAfter().printAll(new PrintOutputCapture<>(0, new SanitizedMarkerPrinter())));
-            } catch (IOException e) {
-                throw new UncheckedIOException("Unable to rewrite source files", e);
+            } else {
+                Charset charset = result.getAfter().getCharset() == null ? StandardCharsets.UTF_8 : result.getAfter().getCharset();
+                String printed = result.getAfter().printAll(new PrintOutputCapture<>(0, new SanitizedMarkerPrinter()));
+                writeIfChanged(targetPath, charset.newEncoder().encode(CharBuffer.wrap(printed)));
             }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to rewrite source files", e);
         }
         if (result.getAfter().getFileAttributes() != null) {
             FileAttributes fileAttributes = result.getAfter().getFileAttributes();
@@ -186,4 +184,17 @@ public class RewriteMojoRun extends AbstractRewriteBaseRunMojo {
             }
         }
     }
+
+    // files with the same content are not written, so their timestamps and the git index stay untouched
+    private static void writeIfChanged(Path targetPath, ByteBuffer content) throws IOException {
+        if (Files.exists(targetPath) && Files.size(targetPath) == content.remaining()
+            && ByteBuffer.wrap(Files.readAllBytes(targetPath)).equals(content)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(targetPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+        }
+    }
 }
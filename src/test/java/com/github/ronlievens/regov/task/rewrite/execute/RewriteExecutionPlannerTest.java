@@ -0,0 +1,49 @@
+package com.github.ronlievens.regov.task.rewrite.execute;
+
+import com.github.ronlievens.regov.shell.model.AzureRepository;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RewriteExecutionPlannerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void test_single_worker_keeps_name_order() {
+        val planner = new RewriteExecutionPlanner(directory.resolve("history.json"));
+        val plan = planner.plan(repositories(), 1);
+        assertEquals(List.of("alpha", "beta", "gamma"), plan.stream().map(AzureRepository::getName).toList());
+    }
+
+    @Test
+    public void test_workers_start_largest_first() {
+        val planner = new RewriteExecutionPlanner(directory.resolve("history.json"));
+        val plan = planner.plan(repositories(), 2);
+        assertEquals(List.of("beta", "gamma", "alpha"), plan.stream().map(AzureRepository::getName).toList());
+    }
+
+    private static TreeSet<AzureRepository> repositories() {
+        val repositories = new TreeSet<AzureRepository>();
+        repositories.add(repository("gamma", 5_000_000L));
+        repositories.add(repository("alpha", 1_000L));
+        repositories.add(repository("beta", 50_000_000L));
+        return repositories;
+    }
+
+    private static AzureRepository repository(final String name, final long size) {
+        val repository = new AzureRepository();
+        repository.setId(UUID.randomUUID());
+        repository.setName(name);
+        repository.setSize(size);
+        return repository;
+    }
+}
@@ -0,0 +1,69 @@
+package com.github.ronlievens.regov.task.rewrite.recipes;
+
+import com.github.ronlievens.regov.shell.AzureMavenVersionShell;
+import lombok.NonNull;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MavenVersionCacheTest {
+
+    @TempDir
+    Path directory;
+
+    // blocks the lookup of the slow artifact until it is released
+    private static class TestMavenVersionShell extends AzureMavenVersionShell {
+
+        private final AtomicInteger lookups = new AtomicInteger();
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public String lookupLastVersion(@NonNull final String groupId, @NonNull final String artifactId) {
+            lookups.incrementAndGet();
+            if ("slow".equals(artifactId)) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return "1.0." + artifactId.length();
+        }
+    }
+
+    @Test
+    public void test_concurrent_lookups() throws Exception {
+        val shell = new TestMavenVersionShell();
+        val cacheFile = directory.resolve("versions.json");
+        val cache = new MavenVersionCache(shell, Duration.ofHours(1), cacheFile);
+
+        val first = CompletableFuture.supplyAsync(() -> cache.lookupLastVersion("com.example", "slow"));
+        val second = CompletableFuture.supplyAsync(() -> cache.lookupLastVersion("com.example", "slow"));
+        // the lookup of another artifact doesn't wait for the slow one
+        assertEquals("1.0.5", CompletableFuture.supplyAsync(() -> cache.lookupLastVersion("com.example", "quick")).get(5, TimeUnit.SECONDS));
+        shell.release.countDown();
+
+        assertEquals("1.0.4", first.get(5, TimeUnit.SECONDS));
+        assertEquals("1.0.4", second.get(5, TimeUnit.SECONDS));
+        assertEquals("1.0.4", cache.lookupLastVersion("com.example", "slow"));
+        assertEquals(2, shell.lookups.get());
+        assertFalse(Files.exists(cacheFile));
+
+        cache.close();
+        assertTrue(Files.exists(cacheFile));
+        assertEquals("1.0.5", new MavenVersionCache(shell, Duration.ofHours(1), cacheFile).lookupLastVersion("com.example", "quick"));
+        assertEquals(2, shell.lookups.get());
+    }
+}
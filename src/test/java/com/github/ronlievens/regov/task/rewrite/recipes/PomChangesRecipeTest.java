@@ -0,0 +1,130 @@
+package com.github.ronlievens.regov.task.rewrite.recipes;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.Recipe;
+import org.openrewrite.SourceFile;
+import org.openrewrite.config.CompositeRecipe;
+import org.openrewrite.config.Environment;
+import org.openrewrite.config.YamlResourceLoader;
+import org.openrewrite.internal.InMemoryLargeSourceSet;
+import org.openrewrite.xml.XmlParser;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+public class PomChangesRecipeTest {
+
+    private static final String POM = """
+        <project>
+            <dependencies>
+                <dependency>
+                    <groupId>com.example</groupId>
+                    <artifactId>library</artifactId>
+                    <version>1.0.0</version>
+                </dependency>
+                <dependency>
+                    <groupId>com.example</groupId>
+                    <artifactId>other</artifactId>
+                    <version>1.0.0</version>
+                </dependency>
+                <dependency>
+                    <groupId>com.example</groupId>
+                    <artifactId>library</artifactId>
+                    <version>1.0.0</version>
+                    <type>test-jar</type>
+                    <scope>test</scope>
+                </dependency>
+                <dependency>
+                    <groupId>com.example</groupId>
+                    <artifactId>removed</artifactId>
+                </dependency>
+                <dependency>
+                    <groupId>com.example</groupId>
+                    <artifactId>removed</artifactId>
+                    <type>test-jar</type>
+                </dependency>
+            </dependencies>
+        </project>
+        """;
+
+    @Test
+    public void test_update_duplicate_coordinates() {
+        assertSameAsSeparateRecipes("""
+              - com.github.ronlievens.regov.task.rewrite.recipes.UpdateDependencyRecipe:
+                  groupId: com.example
+                  artifactId: library
+                  newVersion: 2.0.0
+            """);
+    }
+
+    @Test
+    public void test_rename_duplicate_coordinates() {
+        assertSameAsSeparateRecipes("""
+              - com.github.ronlievens.regov.task.rewrite.recipes.UpdateDependencyRecipe:
+                  groupId: com.example
+                  artifactId: library
+                  newArtifactId: renamed
+              - com.github.ronlievens.regov.task.rewrite.recipes.UpdateDependencyRecipe:
+                  groupId: com.example
+                  artifactId: renamed
+                  newVersion: 3.0.0
+            """);
+    }
+
+    @Test
+    public void test_remove_duplicate_coordinates() {
+        assertSameAsSeparateRecipes("""
+              - com.github.ronlievens.regov.task.rewrite.recipes.RemoveDependencyRecipe:
+                  groupId: com.example
+                  artifactId: removed
+            """);
+    }
+
+    @Test
+    public void test_add_and_update() {
+        assertSameAsSeparateRecipes("""
+              - com.github.ronlievens.regov.task.rewrite.recipes.AddDependencyRecipe:
+                  groupId: com.example
+                  artifactId: added
+                  version: 1.0.0
+              - com.github.ronlievens.regov.task.rewrite.recipes.UpdateDependencyRecipe:
+                  groupId: com.example
+                  artifactId: other
+                  newVersion: 2.0.0
+            """);
+    }
+
+    private static void assertSameAsSeparateRecipes(final String recipeList) {
+        val recipe = load(recipeList);
+        val separate = run(recipe);
+        assertNotEquals(POM, separate);
+        assertEquals(separate, run(PomChangesRecipe.fuse(recipe)));
+    }
+
+    private static Recipe load(final String recipeList) {
+        val yaml = """
+            type: specs.openrewrite.org/v1beta/recipe
+            name: com.github.ronlievens.regov.Test
+            displayName: Test
+            recipeList:
+            """ + recipeList;
+        val loader = new YamlResourceLoader(new ByteArrayInputStream(yaml.getBytes(UTF_8)), URI.create("test.yml"), new Properties());
+        return new CompositeRecipe(Environment.builder().load(loader).build().listRecipes());
+    }
+
+    private static String run(final Recipe recipe) {
+        val ctx = new InMemoryExecutionContext(Throwable::printStackTrace);
+        final List<SourceFile> pom = new XmlParser().parse(ctx, POM).map(document -> (SourceFile) document.withSourcePath(Path.of("pom.xml"))).toList();
+        val results = recipe.run(new InMemoryLargeSourceSet(pom), ctx).getChangeset().getAllResults();
+        return results.isEmpty() ? POM : results.get(0).getAfter().printAll();
+    }
+}
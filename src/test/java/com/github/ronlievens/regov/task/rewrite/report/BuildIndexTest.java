@@ -0,0 +1,95 @@
+package com.github.ronlievens.regov.task.rewrite.report;
+
+import com.github.ronlievens.regov.shell.AzureRestShell;
+import com.github.ronlievens.regov.shell.Shell;
+import lombok.NonNull;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BuildIndexTest {
+
+    private static final UUID PROJECT = UUID.randomUUID();
+
+    @TempDir
+    Path directory;
+
+    // returns the builds queued since the asked time
+    private static class TestAzureRestShell extends AzureRestShell {
+
+        private final List<String> minTimes = new ArrayList<>();
+        private final List<Map<String, Object>> builds = new ArrayList<>();
+
+        TestAzureRestShell() {
+            super(new Shell());
+        }
+
+        @Override
+        public List<Map<String, Object>> listBuilds(@NonNull final String organization, @NonNull final UUID project, @NonNull final String branchName, @NonNull final String minTime, final boolean trace) {
+            minTimes.add(minTime);
+            return builds.stream().filter(build -> !Instant.parse((String) build.get("queueTime")).isBefore(Instant.parse(minTime))).toList();
+        }
+
+        @Override
+        public List<Map<String, Object>> listBuilds(@NonNull final String organization, @NonNull final UUID project, @NonNull final List<Integer> buildIds, final boolean trace) {
+            return List.of();
+        }
+    }
+
+    @Test
+    public void test_refresh_from_last_queue_time() {
+        val shell = new TestAzureRestShell();
+        val queueTime = Instant.now().minusSeconds(60).toString();
+        shell.builds.add(build(1, queueTime));
+
+        assertTrue(new BuildIndex(shell, directory).refresh("organization", PROJECT, "main", false));
+        val index = new BuildIndex(shell, directory);
+        assertTrue(index.refresh("organization", PROJECT, "main", false));
+
+        assertEquals(2, shell.minTimes.size());
+        assertEquals(queueTime, shell.minTimes.get(1));
+        assertTrue(index.find(PROJECT, "\\service", "service-ci", "update").isPresent());
+    }
+
+    @Test
+    public void test_rebuild_incomplete_index() throws Exception {
+        val shell = new TestAzureRestShell();
+        val lastQueueTime = Instant.now().minusSeconds(60).toString();
+        shell.builds.add(build(1, Instant.now().minusSeconds(3600).toString()));
+        try (val files = Files.list(directory)) {
+            assertEquals(0L, files.count());
+        }
+        // an index of before the paging, without the complete flag
+        new BuildIndex(shell, directory).refresh("organization", PROJECT, "main", false);
+        try (val files = Files.list(directory)) {
+            val cacheFile = files.findFirst().orElseThrow();
+            Files.writeString(cacheFile, "{\"lastBuildId\":1,\"lastQueueTime\":\"%s\",\"builds\":[]}".formatted(lastQueueTime));
+        }
+
+        val index = new BuildIndex(shell, directory);
+        assertTrue(index.refresh("organization", PROJECT, "main", false));
+        assertNotEquals(lastQueueTime, shell.minTimes.get(1));
+        assertTrue(index.find(PROJECT, "\\service", "service-ci", "update").isPresent());
+    }
+
+    private static Map<String, Object> build(final int id, final String queueTime) {
+        return Map.of("id", id,
+            "definition", Map.of("name", "service-ci", "path", "\\service"),
+            "triggerInfo", Map.of("ci.message", "update"),
+            "status", "completed",
+            "result", "succeeded",
+            "queueTime", queueTime);
+    }
+}
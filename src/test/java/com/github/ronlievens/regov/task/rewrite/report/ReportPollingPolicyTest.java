@@ -0,0 +1,57 @@
+package com.github.ronlievens.regov.task.rewrite.report;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReportPollingPolicyTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T12:00:00Z");
+
+    @Test
+    public void test_change_interval() {
+        assertEquals(Optional.of(Duration.ofMinutes(15)), ReportPollingPolicy.changeInterval(change(null, null)));
+        assertEquals(Optional.of(Duration.ofMinutes(5)), ReportPollingPolicy.changeInterval(change("active", null)));
+        assertEquals(Optional.of(Duration.ofMinutes(1)), ReportPollingPolicy.changeInterval(change("active", "inProgress")));
+        assertEquals(Optional.of(Duration.ofMinutes(1)), ReportPollingPolicy.changeInterval(change("completed", "inProgress")));
+        assertEquals(Optional.of(Duration.ofMinutes(30)), ReportPollingPolicy.changeInterval(change("completed", "failed")));
+        assertEquals(Optional.empty(), ReportPollingPolicy.changeInterval(change("completed", "succeeded")));
+    }
+
+    @Test
+    public void test_environment_interval() {
+        val open = change("active", null);
+        val done = change("completed", "succeeded");
+        assertEquals(Optional.of(Duration.ofMinutes(30)), ReportPollingPolicy.environmentInterval(new ReportRepositoryChangeModel(), open));
+        assertEquals(Optional.of(Duration.ofMinutes(5)), ReportPollingPolicy.environmentInterval(new ReportRepositoryChangeModel(), done));
+        assertEquals(Optional.of(Duration.ofMinutes(5)), ReportPollingPolicy.environmentInterval(change("active", null), open));
+        assertEquals(Optional.empty(), ReportPollingPolicy.environmentInterval(ReportRepositoryChangeModel.builder().containerNewVersion("registry/service: 1.0").build(), done));
+    }
+
+    @Test
+    public void test_is_due() {
+        val interval = Optional.of(Duration.ofMinutes(5));
+        val neverChecked = new ReportRepositoryChangeModel();
+        assertEquals(Optional.of(Instant.EPOCH), ReportPollingPolicy.nextPoll(neverChecked, interval));
+        assertTrue(ReportPollingPolicy.isDue(neverChecked, interval, NOW));
+
+        val checked = ReportRepositoryChangeModel.builder().lastChecked(NOW.minus(Duration.ofMinutes(4))).build();
+        assertEquals(Optional.of(NOW.plus(Duration.ofMinutes(1))), ReportPollingPolicy.nextPoll(checked, interval));
+        assertFalse(ReportPollingPolicy.isDue(checked, interval, NOW));
+        assertTrue(ReportPollingPolicy.isDue(checked, interval, NOW.plus(Duration.ofMinutes(1))));
+
+        assertEquals(Optional.empty(), ReportPollingPolicy.nextPoll(neverChecked, Optional.empty()));
+        assertFalse(ReportPollingPolicy.isDue(neverChecked, Optional.empty(), NOW));
+    }
+
+    private static ReportRepositoryChangeModel change(final String pullRequestStatus, final String buildStatus) {
+        return ReportRepositoryChangeModel.builder().pullRequestStatus(pullRequestStatus).buildStatus(buildStatus).build();
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.ronlievens.regov.task.rewrite.report;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReportRepositoryModelTest {
+
+    @Test
+    public void test_done() {
+        val repository = repository("completed", "succeeded", "registry/service: 1.0", "registry/service: 1.0");
+        assertTrue(repository.isDone());
+        assertTrue(repository.getChange().isChangeDone());
+    }
+
+    @Test
+    public void test_not_done() {
+        assertFalse(repository("active", "succeeded", "registry/service: 1.0", "registry/service: 1.0").isDone());
+        assertFalse(repository("completed", "inProgress", "registry/service: 1.0", "registry/service: 1.0").isDone());
+        assertFalse(repository("completed", "failed", "registry/service: 1.0", "registry/service: 1.0").isDone());
+        assertFalse(repository("completed", "succeeded", "registry/service: 1.0", null).isDone());
+        assertFalse(repository("completed", "succeeded", null, null).isDone());
+        assertFalse(new ReportRepositoryModel().isDone());
+    }
+
+    private static ReportRepositoryModel repository(final String pullRequestStatus, final String buildStatus, final String acceptance, final String production) {
+        val repository = new ReportRepositoryModel();
+        repository.setChange(ReportRepositoryChangeModel.builder().pullRequestStatus(pullRequestStatus).buildStatus(buildStatus).build());
+        repository.setAcceptance(ReportRepositoryChangeModel.builder().containerNewVersion(acceptance).build());
+        repository.setProduction(ReportRepositoryChangeModel.builder().containerNewVersion(production).build());
+        return repository;
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.ronlievens.regov.task.rewrite.utils;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ContainerVersionExtractorTest {
+
+    @Test
+    public void test_extract_image() {
+        val yaml = """
+            replicaCount: 2
+            labels:
+              app: service
+              ports: [8080, 8443]
+            image:
+              pullPolicy: IfNotPresent
+              repository: registry.example.com/service
+              resources: { limits: { cpu: 1 } }
+              tag: 1.10
+            ingress:
+              enabled: true
+            """;
+        val actual = ContainerVersionExtractor.extract(new StringReader(yaml));
+        assertEquals("registry.example.com/service", actual.repository());
+        assertEquals("1.10", actual.tag());
+        assertEquals("registry.example.com/service: 1.10", actual.version());
+    }
+
+    @Test
+    public void test_extract_without_image() {
+        assertNull(ContainerVersionExtractor.extract(new StringReader("image: service:1.0\n")).version());
+        assertNull(ContainerVersionExtractor.extract(new StringReader("- image\n")).version());
+        assertNull(ContainerVersionExtractor.extract(new StringReader("")).version());
+    }
+}
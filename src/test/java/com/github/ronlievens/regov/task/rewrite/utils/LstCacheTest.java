@@ -0,0 +1,64 @@
+package com.github.ronlievens.regov.task.rewrite.utils;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.SourceFile;
+import org.openrewrite.java.JavaParser;
+import org.openrewrite.xml.XmlParser;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LstCacheTest {
+
+    private static final Set<Path> PATHS = Set.of(Path.of("A.java"), Path.of("pom.xml"));
+    private static final Path ROOT = Path.of("repository");
+
+    @Test
+    public void test_store_and_load() {
+        val cache = new LstCache();
+        val sourceFiles = parse();
+        val key = LstCache.key("commit", "configuration");
+        cache.store(ROOT, key, sourceFiles);
+
+        val loaded = cache.load(ROOT, key, PATHS);
+        assertTrue(loaded.isPresent());
+        assertSame(sourceFiles, loaded.get());
+    }
+
+    @Test
+    public void test_load_other_key_or_files() {
+        val cache = new LstCache();
+        cache.store(ROOT, LstCache.key("commit", "configuration"), parse());
+
+        assertFalse(cache.load(ROOT, LstCache.key("other commit", "configuration"), PATHS).isPresent());
+        assertFalse(cache.load(ROOT, LstCache.key("commit", "other configuration"), PATHS).isPresent());
+        assertFalse(cache.load(ROOT, LstCache.key("commit", "configuration"), Set.of(Path.of("A.java"))).isPresent());
+    }
+
+    @Test
+    public void test_load_other_repository_or_released() {
+        val cache = new LstCache();
+        val key = LstCache.key("commit", "configuration");
+        cache.store(ROOT, key, parse());
+
+        assertFalse(cache.load(Path.of("other"), key, PATHS).isPresent());
+        assertTrue(cache.load(ROOT.toAbsolutePath(), key, PATHS).isPresent());
+        cache.release(ROOT);
+        assertFalse(cache.load(ROOT, key, PATHS).isPresent());
+    }
+
+    private static List<SourceFile> parse() {
+        val ctx = new InMemoryExecutionContext();
+        val java = JavaParser.fromJavaVersion().build().parse(ctx, "class A {}");
+        val xml = new XmlParser().parse(ctx, "<project/>").map(document -> (SourceFile) document.withSourcePath(Path.of("pom.xml")));
+        return Stream.concat(java, xml).toList();
+    }
+}
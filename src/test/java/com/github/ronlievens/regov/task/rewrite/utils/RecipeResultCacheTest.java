@@ -0,0 +1,80 @@
+package com.github.ronlievens.regov.task.rewrite.utils;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RecipeResultCacheTest {
+
+    private static final long MAX_SIZE = 1024 * 1024;
+    private static final Duration MAX_AGE = Duration.ofDays(30);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void test_round_trip() throws IOException {
+        new RecipeResultCache(directory, MAX_SIZE, MAX_AGE).put("key", new RecipeResultCache.CachedResult(true, "<project/>"));
+
+        val cached = new RecipeResultCache(directory, MAX_SIZE, MAX_AGE).get("key");
+        assertTrue(cached.isPresent());
+        assertTrue(cached.get().changed());
+        assertEquals("<project/>", cached.get().content());
+        try (val files = Files.list(directory)) {
+            assertEquals(1L, files.count());
+        }
+    }
+
+    @Test
+    public void test_evict_expired() throws IOException {
+        val cache = new RecipeResultCache(directory, MAX_SIZE, MAX_AGE);
+        cache.put("old", new RecipeResultCache.CachedResult(false, null));
+        cache.put("new", new RecipeResultCache.CachedResult(false, null));
+        Files.setLastModifiedTime(directory.resolve("old.json"), FileTime.from(Instant.now().minus(Duration.ofDays(31))));
+        Files.writeString(directory.resolve("stale1234.tmp"), "{");
+
+        new RecipeResultCache(directory, MAX_SIZE, MAX_AGE);
+        assertFalse(Files.exists(directory.resolve("old.json")));
+        assertFalse(Files.exists(directory.resolve("stale1234.tmp")));
+        assertTrue(Files.exists(directory.resolve("new.json")));
+    }
+
+    @Test
+    public void test_evict_least_recently_used() throws IOException {
+        val cache = new RecipeResultCache(directory, MAX_SIZE, MAX_AGE);
+        val content = "x".repeat(1000);
+        for (val key : new String[]{"a", "b", "c"}) {
+            cache.put(key, new RecipeResultCache.CachedResult(true, content));
+        }
+        val now = Instant.now();
+        Files.setLastModifiedTime(directory.resolve("a.json"), FileTime.from(now.minusSeconds(30)));
+        Files.setLastModifiedTime(directory.resolve("b.json"), FileTime.from(now.minusSeconds(20)));
+        Files.setLastModifiedTime(directory.resolve("c.json"), FileTime.from(now.minusSeconds(10)));
+        // a read marks the entry as used
+        assertTrue(new RecipeResultCache(directory, MAX_SIZE, MAX_AGE).get("a").isPresent());
+
+        new RecipeResultCache(directory, 2500, MAX_AGE);
+        assertTrue(Files.exists(directory.resolve("a.json")));
+        assertFalse(Files.exists(directory.resolve("b.json")));
+        assertTrue(Files.exists(directory.resolve("c.json")));
+    }
+
+    @Test
+    public void test_class_version() {
+        val version = RecipeResultCache.classVersion(RecipeResultCache.class);
+        assertTrue(version.isPresent());
+        assertEquals(version, RecipeResultCache.classVersion(RecipeResultCache.class));
+        assertFalse(RecipeResultCache.classVersion(String.class).isPresent());
+    }
+}
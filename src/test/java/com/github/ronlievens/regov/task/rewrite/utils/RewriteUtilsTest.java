@@ -0,0 +1,139 @@
+package com.github.ronlievens.regov.task.rewrite.utils;
+
+import com.github.ronlievens.regov.task.rewrite.model.RewriteProfileModel;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.Recipe;
+import org.openrewrite.TreeVisitor;
+import org.openrewrite.config.CompositeRecipe;
+import org.openrewrite.xml.XmlIsoVisitor;
+import org.openrewrite.xml.tree.Xml;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RewriteUtilsTest {
+
+    @TempDir
+    Path root;
+
+    // replaces the value of the tags, a value that ends with "+" asks for another cycle that removes the "+"
+    public static class ChangeValueRecipe extends Recipe {
+
+        private final String from;
+        private final String to;
+
+        public ChangeValueRecipe(final String from, final String to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Change value";
+        }
+
+        @Override
+        public String getDescription() {
+            return "Change the value of the tags.";
+        }
+
+        @Override
+        public String getName() {
+            return "test.ChangeValue." + from;
+        }
+
+        @Override
+        public boolean causesAnotherCycle() {
+            return to.endsWith("+");
+        }
+
+        @Override
+        public TreeVisitor<?, ExecutionContext> getVisitor() {
+            return new XmlIsoVisitor<>() {
+                @Override
+                public Xml.Tag visitTag(final Xml.Tag tag, final ExecutionContext ctx) {
+                    val visited = super.visitTag(tag, ctx);
+                    if (visited.getValue().filter(from::equals).isPresent()) {
+                        return visited.withValue(to);
+                    }
+                    if (visited.getValue().filter(to::equals).isPresent() && to.endsWith("+")) {
+                        return visited.withValue(to.substring(0, to.length() - 1));
+                    }
+                    return visited;
+                }
+            };
+        }
+    }
+
+    @Test
+    public void test_converge_single_cycle() throws IOException {
+        writeFiles(4, "old");
+        val profile = new RewriteProfileModel();
+        assertTrue(RewriteUtils.rewrite(root, recipe(), profile, new CyclePolicy(3, true), SourceSelection.DEFAULT, null));
+
+        assertEquals(1, profile.getCycles());
+        assertEquals(4, sourceFiles(profile, "test.ChangeValue.old"));
+        assertEquals(4, sourceFiles(profile, "test.ChangeValue.other"));
+        assertValues("new");
+    }
+
+    @Test
+    public void test_converge_same_as_default() throws IOException {
+        writeFiles(3, "old");
+        val defaultProfile = new RewriteProfileModel();
+        RewriteUtils.rewrite(root, recipe(), defaultProfile, new CyclePolicy(3, false), SourceSelection.DEFAULT, null);
+        assertValues("new");
+
+        writeFiles(3, "old");
+        val convergeProfile = new RewriteProfileModel();
+        RewriteUtils.rewrite(root, recipe(), convergeProfile, new CyclePolicy(3, true), SourceSelection.DEFAULT, null);
+        assertValues("new");
+
+        assertEquals(defaultProfile.getCycles(), convergeProfile.getCycles());
+        assertEquals(sourceFiles(defaultProfile, "test.ChangeValue.old"), sourceFiles(convergeProfile, "test.ChangeValue.old"));
+    }
+
+    @Test
+    public void test_converge_another_cycle() throws IOException {
+        writeFiles(3, "old");
+        val profile = new RewriteProfileModel();
+        val recipe = new CompositeRecipe(List.of(new ChangeValueRecipe("old", "new+"), new ChangeValueRecipe("other", "x")));
+        RewriteUtils.rewrite(root, recipe, profile, new CyclePolicy(3, true), SourceSelection.DEFAULT, null);
+
+        // the second cycle only runs the recipe that asked for it on the 3 changed files, the third one changes nothing
+        assertEquals(3, profile.getCycles());
+        assertEquals(9, sourceFiles(profile, "test.ChangeValue.old"));
+        assertEquals(3, sourceFiles(profile, "test.ChangeValue.other"));
+        assertValues("new");
+    }
+
+    private static Recipe recipe() {
+        return new CompositeRecipe(List.of(new ChangeValueRecipe("old", "new"), new ChangeValueRecipe("other", "x")));
+    }
+
+    private void writeFiles(final int count, final String value) throws IOException {
+        for (int i = 0; i < count; i++) {
+            Files.writeString(root.resolve("file%d.xml".formatted(i)), "<root>\n    <value>%s</value>\n</root>\n".formatted(value));
+        }
+    }
+
+    private void assertValues(final String value) throws IOException {
+        try (val files = Files.list(root)) {
+            for (val file : files.toList()) {
+                assertEquals("<root>\n    <value>%s</value>\n</root>\n".formatted(value), Files.readString(file));
+            }
+        }
+    }
+
+    private static long sourceFiles(final RewriteProfileModel profile, final String recipe) {
+        return profile.getRecipes().stream().filter(model -> recipe.equals(model.getRecipe())).mapToLong(model -> model.getSourceFiles()).sum();
+    }
+}
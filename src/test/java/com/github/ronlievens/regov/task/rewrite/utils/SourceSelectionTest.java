@@ -0,0 +1,60 @@
+package com.github.ronlievens.regov.task.rewrite.utils;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SourceSelectionTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    public void test_relative_generated_path() throws IOException {
+        val selection = SourceSelection.of(0, List.of("src/gen/**"));
+        assertTrue(selection.isOpaque(root, write("src/gen/X.java", "class X {}")));
+        assertFalse(selection.isOpaque(root, write("src/main/java/X.java", "class X {}")));
+        assertFalse(selection.isOpaque(root, write("module/src/gen/X.java", "class X {}")));
+    }
+
+    @Test
+    public void test_default_generated_paths() throws IOException {
+        val selection = SourceSelection.DEFAULT;
+        assertTrue(selection.isOpaque(root, write("target/classes/X.java", "class X {}")));
+        assertTrue(selection.isOpaque(root, write("module/target/X.java", "class X {}")));
+        assertTrue(selection.isOpaque(root, write("module/target/generated-sources/annotations/X.java", "class X {}")));
+    }
+
+    @Test
+    public void test_generated_marker() throws IOException {
+        val selection = SourceSelection.DEFAULT;
+        assertTrue(selection.isOpaque(root, write("A.java", "// Code generated by a tool. DO NOT EDIT.\nclass A {}")));
+        assertTrue(selection.isOpaque(root, write("B.java", "@javax.annotation.processing.Generated(\"tool\")\nclass B {}")));
+        assertTrue(selection.isOpaque(root, write("C.java", "@Generated\nclass C {}")));
+        assertFalse(selection.isOpaque(root, write("D.java", "class D {\n    String text = \"DO NOT EDIT\";\n}")));
+        assertFalse(selection.isOpaque(root, write("E.java", "class E {\n    @Id\n    @GeneratedValue\n    Long id;\n}")));
+        assertFalse(selection.isOpaque(root, write("F.java", "class F {\n    boolean x = s.contains(\"@Generated\");\n}")));
+    }
+
+    @Test
+    public void test_max_file_size() throws IOException {
+        val selection = SourceSelection.of(16, List.of());
+        assertTrue(selection.isOpaque(root, write("Large.java", "class Large { int a; int b; }")));
+        assertFalse(selection.isOpaque(root, write("S.java", "class S {}")));
+    }
+
+    private Path write(final String path, final String content) throws IOException {
+        val file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        return file;
+    }
+}